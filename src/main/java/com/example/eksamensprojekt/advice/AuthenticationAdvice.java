@@ -2,13 +2,14 @@ package com.example.eksamensprojekt.advice;
 
 import com.example.eksamensprojekt.controller.ProjectController;
 import com.example.eksamensprojekt.controller.TaskController;
+import com.example.eksamensprojekt.controller.TimeEntryController;
 import com.example.eksamensprojekt.exceptions.NotLoggedInException;
 import com.example.eksamensprojekt.utils.SessionUtil;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ModelAttribute;
 
-@ControllerAdvice(assignableTypes = { ProjectController.class, TaskController.class })
+@ControllerAdvice(assignableTypes = { ProjectController.class, TaskController.class, TimeEntryController.class })
 public class AuthenticationAdvice {
 
     @ModelAttribute
@@ -1,22 +1,38 @@
 package com.example.eksamensprojekt.controller;
 
 import com.example.eksamensprojekt.model.Project;
+import com.example.eksamensprojekt.model.ProjectMember;
 import com.example.eksamensprojekt.model.ProjectRole;
 import com.example.eksamensprojekt.model.User;
+import com.example.eksamensprojekt.service.ExportService;
 import com.example.eksamensprojekt.service.ProjectService;
 import com.example.eksamensprojekt.service.UserService;
+import com.example.eksamensprojekt.utils.HourSeries;
 import com.example.eksamensprojekt.utils.SessionUtil;
+import com.example.eksamensprojekt.utils.TimeBucket;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
-
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @SuppressWarnings("JvmTaintAnalysis")
 @Controller
@@ -24,10 +40,12 @@ import java.util.Map;
 public class ProjectController {
     private final ProjectService projectService;
     private final UserService userService;
+    private final ExportService exportService;
 
-    public ProjectController(ProjectService projectService, UserService userService) {
+    public ProjectController(ProjectService projectService, UserService userService, ExportService exportService) {
         this.projectService = projectService;
         this.userService = userService;
+        this.exportService = exportService;
     }
 
     // =========== PROJECT CRUD ===========
@@ -66,6 +84,9 @@ public class ProjectController {
 
     @GetMapping("/{projectId}/hour_distribution")
     public String showHourDistribution(@PathVariable int projectId,
+                                       @RequestParam(value = "bucket", required = false) String bucketParam,
+                                       @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+                                       @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
                                        HttpSession session,
                                        Model model) {
         int currentUserId = SessionUtil.getCurrentUserId(session);
@@ -75,15 +96,72 @@ public class ProjectController {
             return "redirect:/projects";
         }
 
-        Project project = projectService.getProjectWithTree(projectId);
-        Map<LocalDate, Double> hourDistributionMap = project.getDistributedHours();
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+
+        // Long projects are grouped into weeks, months or quarters, and can be limited to a window
+        TimeBucket bucket = TimeBucket.fromParam(bucketParam);
+        Project project = projectService.getProject(projectId);
+        HourSeries hourSeries = projectService.getHourSeries(project, bucket, from, to);
 
         model.addAttribute("project", project);
-        model.addAttribute("hourDistributionMap", hourDistributionMap);
+        model.addAttribute("hourSeries", hourSeries);
+        model.addAttribute("bucket", bucket);
+        model.addAttribute("buckets", TimeBucket.values());
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
 
         return "project_hour_distribution";
     }
 
+    // =========== EXPORT ===========
+
+    @GetMapping("/{projectId}/export/time_entries.csv")
+    public void exportTimeEntries(@PathVariable int projectId,
+                                  @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                  HttpSession session,
+                                  HttpServletResponse response) throws IOException {
+        if (!projectService.hasAccessToProject(projectId, SessionUtil.getCurrentUserId(session))) {
+            response.sendRedirect(ServletUriComponentsBuilder.fromCurrentContextPath().path("/projects").toUriString());
+            return;
+        }
+
+        try (Writer out = openCsvExport(response, "project-" + projectId + "-time-entries.csv", acceptEncoding)) {
+            exportService.writeTimeEntriesCsv(projectId, out);
+        }
+    }
+
+    @GetMapping("/{projectId}/export/tasks.csv")
+    public void exportTasks(@PathVariable int projectId,
+                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                            HttpSession session,
+                            HttpServletResponse response) throws IOException {
+        if (!projectService.hasAccessToProject(projectId, SessionUtil.getCurrentUserId(session))) {
+            response.sendRedirect(ServletUriComponentsBuilder.fromCurrentContextPath().path("/projects").toUriString());
+            return;
+        }
+
+        try (Writer out = openCsvExport(response, "project-" + projectId + "-tasks.csv", acceptEncoding)) {
+            exportService.writeTasksCsv(projectId, out);
+        }
+    }
+
+    // Writes straight to the response as rows are read, gzipped on the fly when the client accepts it
+    private Writer openCsvExport(HttpServletResponse response, String fileName, String acceptEncoding) throws IOException {
+        response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        OutputStream out = response.getOutputStream();
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            out = new GZIPOutputStream(out, 8192);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+    }
+
     @GetMapping("/create")
     public String showCreateProjectForm(HttpSession session, Model model) {
         Project newProject = new Project();
@@ -190,6 +268,71 @@ public class ProjectController {
         return "redirect:/projects/" + projectId;
     }
 
+    @GetMapping("/{projectId}/move")
+    public String showMoveProjectForm(@PathVariable int projectId,
+                                      HttpSession session,
+                                      Model model) {
+        int currentUserId = SessionUtil.getCurrentUserId(session);
+        if (!projectService.hasAccessToProject(projectId, currentUserId)) {
+            return "redirect:/projects";
+        }
+
+        Project project = projectService.getProject(projectId);
+        ProjectRole userRole = projectService.getUserRole(projectId, currentUserId);
+
+        // Only owner and full access can move, and only subprojects can be moved
+        boolean isOwner = project.getOwnerId() == currentUserId;
+        boolean hasFullAccess = userRole != null && userRole.getRole().equals("FULL_ACCESS");
+        if ((!isOwner && !hasFullAccess) || project.getParentProjectId() == null) {
+            return "redirect:/projects/" + projectId;
+        }
+
+        model.addAttribute("project", project);
+        model.addAttribute("moveTargets", projectService.getProjectMoveTargets(project, currentUserId));
+        // A top level project belongs to its owner alone, so only the owner can move it there
+        model.addAttribute("canMoveToTopLevel", isOwner);
+        return "project_move_form";
+    }
+
+    @PostMapping("/{projectId}/move")
+    public String moveProject(@PathVariable int projectId,
+                              @RequestParam(required = false) Integer targetProjectId,
+                              HttpSession session,
+                              RedirectAttributes redirectAttributes) {
+        int currentUserId = SessionUtil.getCurrentUserId(session);
+        if (!projectService.hasAccessToProject(projectId, currentUserId)) {
+            return "redirect:/projects";
+        }
+
+        Project project = projectService.getProject(projectId);
+        ProjectRole userRole = projectService.getUserRole(projectId, currentUserId);
+
+        boolean isOwner = project.getOwnerId() == currentUserId;
+        boolean hasFullAccess = userRole != null && userRole.getRole().equals("FULL_ACCESS");
+        if ((!isOwner && !hasFullAccess) || project.getParentProjectId() == null) {
+            return "redirect:/projects/" + projectId;
+        }
+
+        // The target must be one of the offered ones, which the user has access to and which are outside the subtree
+        boolean validTarget = targetProjectId == null
+                ? isOwner
+                : projectService.getProjectMoveTargets(project, currentUserId).stream()
+                        .anyMatch(target -> target.getProjectId() == targetProjectId);
+        if (!validTarget) {
+            redirectAttributes.addFlashAttribute("moveErrorMessage", "Projektet kan ikke flyttes dertil.");
+            return "redirect:/projects/" + projectId;
+        }
+
+        try {
+            projectService.moveProject(projectId, targetProjectId);
+            redirectAttributes.addFlashAttribute("moveSuccessMessage", "Projektet er flyttet.");
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("moveErrorMessage", "Projektet kan ikke flyttes ind under sig selv.");
+        }
+
+        return "redirect:/projects/" + projectId;
+    }
+
     @PostMapping("/{projectId}/delete")
     public String deleteProject(@PathVariable int projectId, HttpSession session) {
         int currentUserId = SessionUtil.getCurrentUserId(session);
@@ -238,20 +381,18 @@ public class ProjectController {
 
         Project project = projectService.getProject(projectId);
 
-        Map<User, ProjectRole> projectUsersWithDirectRoles = projectService.getProjectUsersWithDirectRoles(projectId);
-        Map<User, ProjectRole> projectUsersWithInheritedRoles = projectService.getProjectUsersWithInheritedRoles(projectId);
+        // Direct and inherited members in one query
+        List<ProjectMember> roster = projectService.getProjectRoster(projectId);
+        List<ProjectMember> directMembers = roster.stream().filter(ProjectMember::isDirect).toList();
+        List<ProjectMember> inheritedMembers = roster.stream().filter(m -> !m.isDirect()).toList();
 
         List<ProjectRole> projectRoles = projectService.getAllProjectRoles();
 
-        //Get all users for the datalist
-        List<User> allUsers = userService.getAllUsers();
-
         model.addAttribute("userRole", userRole);
         model.addAttribute("project", project);
-        model.addAttribute("directProjectUsers", projectUsersWithDirectRoles);
-        model.addAttribute("inheritedProjectUsers", projectUsersWithInheritedRoles);
+        model.addAttribute("directMembers", directMembers);
+        model.addAttribute("inheritedMembers", inheritedMembers);
         model.addAttribute("projectRoles", projectRoles);
-        model.addAttribute("allUsers", allUsers);
         return "project_team";
     }
 
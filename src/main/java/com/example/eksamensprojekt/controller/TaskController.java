@@ -7,6 +7,7 @@ import com.example.eksamensprojekt.service.UserService;
 import com.example.eksamensprojekt.utils.SessionUtil;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -20,6 +21,9 @@ import java.util.List;
 @Controller
 @RequestMapping("tasks")
 public class TaskController {
+    private static final int DEFAULT_TIME_ENTRY_PAGE_SIZE = 50;
+    private static final int MAX_TIME_ENTRY_PAGE_SIZE = 200;
+
     private final TaskService taskService;
     private final ProjectService projectService;
     private final UserService userService;
@@ -236,7 +240,8 @@ public class TaskController {
     public String showMoveTaskForm(@PathVariable int taskId,
                                    Model model,
                                    HttpSession session){
-        Task task = taskService.getTask(taskId);
+        // Load the task with its subtasks up front, the tree is needed for the subtask count
+        Task task = taskService.getTaskWithTree(taskId);
         int currentUserId = SessionUtil.getCurrentUserId(session);
 
         if (!projectService.hasAccessToProject(task.getProjectId(), SessionUtil.getCurrentUserId(session))) {
@@ -249,10 +254,9 @@ public class TaskController {
             return "redirect:/tasks/" + taskId;
         }
 
-        List<Project> moveTargets = projectService.getValidMoveTargets(task.getProjectId());
+        List<Project> moveTargets = projectService.getValidMoveTargets(task.getProjectId(), currentUserId);
 
-        Task taskWithTree = taskService.getTaskWithTree(taskId);
-        int subtaskCount = countSubTasks(taskWithTree);
+        int subtaskCount = countSubTasks(task);
 
         model.addAttribute("task", task);
         model.addAttribute("moveTargets", moveTargets);
@@ -293,8 +297,8 @@ public class TaskController {
 
         //If all checks are successful, make the move
         try {
-            taskService.moveTaskToProject(taskId, targetProjectId);
-            redirectAttributes.addFlashAttribute("moveSuccessMessage", "Opgaven er flyttet til det nye projekt.");
+            int tasksMoved = taskService.moveTaskToProject(taskId, targetProjectId);
+            redirectAttributes.addFlashAttribute("moveSuccessMessage", "Opgaven er flyttet til det nye projekt (" + tasksMoved + " opgaver i alt).");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("moveErrorMessage", "Der skete en fejl under flytningen af opgaven. " + e.getMessage());
         }
@@ -319,6 +323,11 @@ public class TaskController {
 
     @GetMapping("/{taskId}/time_entries")
     public String showTimeEntries(@PathVariable int taskId,
+                                  @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+                                  @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+                                  @RequestParam(value = "beforeDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate beforeDate,
+                                  @RequestParam(value = "beforeId", required = false) Integer beforeId,
+                                  @RequestParam(value = "size", defaultValue = "" + DEFAULT_TIME_ENTRY_PAGE_SIZE) int size,
                                   HttpSession session,
                                   Model model) {
         int currentUserId = SessionUtil.getCurrentUserId(session);
@@ -331,17 +340,24 @@ public class TaskController {
 
         String userRole = projectService.getUserRole(projectId,currentUserId).getRole();
 
-        List<TimeEntry> timeEntries = taskService.getTimeEntriesByTaskId(taskId);
+        // Only one page is read. The totals in the header come from the hours summary and rollup on the task.
+        int pageSize = Math.clamp(size, 1, MAX_TIME_ENTRY_PAGE_SIZE);
+        TimeEntryPage page = taskService.getTimeEntryPage(taskId, from, to, beforeDate, beforeId, pageSize);
         List<User> projectUsers = userService.getUsersByProjectId(projectId);
 
         TimeEntry newTimeEntry = new TimeEntry();
         newTimeEntry.setUserId(SessionUtil.getCurrentUserId(session));
+        newTimeEntry.setWorkDate(LocalDate.now());
 
         model.addAttribute("task", task);
         model.addAttribute("userRole", userRole);
-        model.addAttribute("timeEntries", timeEntries);
+        model.addAttribute("timeEntries", page.getEntries());
+        model.addAttribute("page", page);
+        model.addAttribute("size", pageSize);
         model.addAttribute("projectUsers", projectUsers);
         model.addAttribute("newTimeEntry", newTimeEntry);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
 
         return "task_time_entries";
     }
@@ -363,7 +379,10 @@ public class TaskController {
         if (bindingResult.hasErrors()) {
             // Rebuild the model
             model.addAttribute("task", task);
-            model.addAttribute("timeEntries", taskService.getTimeEntriesByTaskId(taskId));
+            TimeEntryPage page = taskService.getTimeEntryPage(taskId, null, null, null, null, DEFAULT_TIME_ENTRY_PAGE_SIZE);
+            model.addAttribute("timeEntries", page.getEntries());
+            model.addAttribute("page", page);
+            model.addAttribute("size", DEFAULT_TIME_ENTRY_PAGE_SIZE);
             model.addAttribute("projectUsers", userService.getUsersByProjectId(projectId));
 
             return "task_time_entries";
@@ -0,0 +1,140 @@
+package com.example.eksamensprojekt.controller;
+
+import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.model.TimeEntryImportResult;
+import com.example.eksamensprojekt.model.Timesheet;
+import com.example.eksamensprojekt.service.TimeEntryImportService;
+import com.example.eksamensprojekt.service.TimesheetService;
+import com.example.eksamensprojekt.utils.SessionUtil;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Controller
+@RequestMapping("time_entries")
+public class TimeEntryController {
+    private final TimeEntryImportService timeEntryImportService;
+    private final TimesheetService timesheetService;
+
+    public TimeEntryController(TimeEntryImportService timeEntryImportService, TimesheetService timesheetService) {
+        this.timeEntryImportService = timeEntryImportService;
+        this.timesheetService = timesheetService;
+    }
+
+    // =========== WEEKLY TIMESHEET ===========
+
+    @GetMapping("/timesheet")
+    public String showTimesheet(@RequestParam(value = "week", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate week,
+                                HttpSession session,
+                                Model model) {
+        int currentUserId = SessionUtil.getCurrentUserId(session);
+        addTimesheetToModel(model, timesheetService.getTimesheet(currentUserId, week != null ? week : LocalDate.now()));
+        return "timesheet";
+    }
+
+    // Every cell of the grid arrives in this one request as hours_{taskId}_{day}, with a description_{taskId} per row.
+    // Empty cells are skipped, and the rest are saved together or not at all.
+    @PostMapping("/timesheet")
+    public String saveTimesheet(@RequestParam("weekStart") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate weekStart,
+                                @RequestParam Map<String, String> params,
+                                HttpSession session,
+                                Model model,
+                                RedirectAttributes redirectAttributes) {
+        int currentUserId = SessionUtil.getCurrentUserId(session);
+
+        List<TimeEntry> entries = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            String[] cell = param.getKey().split("_");
+            String value = param.getValue().trim();
+            if (cell.length != 3 || !cell[0].equals("hours") || value.isEmpty()) {
+                continue;
+            }
+
+            try {
+                int taskId = Integer.parseInt(cell[1]);
+                int day = Integer.parseInt(cell[2]);
+                double hours = Double.parseDouble(value.replace(',', '.'));
+                if (day < 0 || day >= Timesheet.DAYS || hours == 0) {
+                    continue;
+                }
+                String description = params.getOrDefault("description_" + taskId, "").trim();
+                entries.add(new TimeEntry(0, taskId, currentUserId, null, weekStart.plusDays(day), hours, description));
+            } catch (NumberFormatException e) {
+                errors.add("\"" + value + "\" er ikke et gyldigt antal timer.");
+            }
+        }
+
+        if (errors.isEmpty()) {
+            errors = timesheetService.saveTimesheet(currentUserId, entries);
+        }
+
+        if (!errors.isEmpty()) {
+            // Show the grid again with what was typed, nothing has been saved
+            addTimesheetToModel(model, timesheetService.getTimesheet(currentUserId, weekStart));
+            model.addAttribute("errors", errors);
+            model.addAttribute("submitted", params);
+            return "timesheet";
+        }
+
+        redirectAttributes.addFlashAttribute("savedCount", entries.size());
+        return "redirect:/time_entries/timesheet?week=" + weekStart;
+    }
+
+    private void addTimesheetToModel(Model model, Timesheet timesheet) {
+        model.addAttribute("timesheet", timesheet);
+        model.addAttribute("previousWeek", timesheet.getWeekStart().minusWeeks(1));
+        model.addAttribute("nextWeek", timesheet.getWeekStart().plusWeeks(1));
+        model.addAttribute("submitted", Map.of());
+    }
+
+    // =========== BULK IMPORT ===========
+
+    @GetMapping("/import")
+    public String showImportForm() {
+        return "time_entry_import";
+    }
+
+    @PostMapping("/import")
+    public String importTimeEntries(@RequestParam("file") MultipartFile file, HttpSession session, Model model) {
+        if (file.isEmpty()) {
+            model.addAttribute("importError", "Vælg en fil.");
+            return "time_entry_import";
+        }
+
+        int currentUserId = SessionUtil.getCurrentUserId(session);
+
+        // JSON files are recognised by name or content type, everything else is read as CSV
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+        boolean json = fileName.endsWith(".json") || "application/json".equals(file.getContentType());
+
+        try (InputStream in = file.getInputStream()) {
+            TimeEntryImportResult result = json
+                    ? timeEntryImportService.importJson(in, currentUserId)
+                    : timeEntryImportService.importCsv(in, currentUserId);
+            model.addAttribute("result", result);
+        } catch (IllegalArgumentException e) {
+            // The file as a whole could not be read, nothing was saved
+            model.addAttribute("importError", e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read uploaded file", e);
+        }
+
+        return "time_entry_import";
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.eksamensprojekt.controller;
 
 import com.example.eksamensprojekt.model.User;
+import com.example.eksamensprojekt.model.UserSummary;
 import com.example.eksamensprojekt.service.UserService;
 import com.example.eksamensprojekt.utils.SessionUtil;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -12,10 +15,15 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.List;
+
 @Controller
 public class UserController {
+    private static final int MAX_SEARCH_RESULTS = 25;
+
     private final UserService userService;
 
     public UserController(UserService userService) {
@@ -103,6 +111,21 @@ public class UserController {
         return "redirect:/login";
     }
 
+    // =========== USER SEARCH ===========
+
+    // Typeahead lookup on email and name, returns at most a handful of users as JSON
+    @GetMapping("/users/search")
+    @ResponseBody
+    public ResponseEntity<List<UserSummary>> searchUsers(@RequestParam("q") String query,
+                                                         @RequestParam(value = "limit", defaultValue = "10") int limit,
+                                                         HttpSession session) {
+        if (!SessionUtil.isLoggedIn(session)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return ResponseEntity.ok(userService.searchUsers(query, Math.clamp(limit, 1, MAX_SEARCH_RESULTS)));
+    }
+
     // =========== USER PROFILE MANAGEMENT ===========
 
     @GetMapping("/user_admin")
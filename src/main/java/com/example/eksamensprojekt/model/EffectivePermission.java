@@ -0,0 +1,53 @@
+package com.example.eksamensprojekt.model;
+
+// What a user may do on a project: access through ownership or assignment on the project or an ancestor,
+// and the role on the nearest project where the user is assigned (null if the user is only an owner)
+public class EffectivePermission {
+    private int projectId;
+    private int userId;
+    private boolean hasAccess;
+    private ProjectRole role;
+
+    public EffectivePermission(int projectId, int userId, boolean hasAccess, ProjectRole role) {
+        this.projectId = projectId;
+        this.userId = userId;
+        this.hasAccess = hasAccess;
+        this.role = role;
+    }
+
+    public static EffectivePermission noAccess(int projectId, int userId) {
+        return new EffectivePermission(projectId, userId, false, null);
+    }
+
+    public int getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(int projectId) {
+        this.projectId = projectId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public boolean hasAccess() {
+        return hasAccess;
+    }
+
+    public void setHasAccess(boolean hasAccess) {
+        this.hasAccess = hasAccess;
+    }
+
+    public ProjectRole getRole() {
+        return role;
+    }
+
+    public void setRole(ProjectRole role) {
+        this.role = role;
+    }
+}
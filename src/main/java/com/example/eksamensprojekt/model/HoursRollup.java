@@ -0,0 +1,29 @@
+package com.example.eksamensprojekt.model;
+
+// Stored totals of a task or project including everything below it,
+// so lists can show them without loading the tree
+public class HoursRollup {
+    private double estimatedHours;
+    private double actualHours;
+
+    public HoursRollup(double estimatedHours, double actualHours) {
+        this.estimatedHours = estimatedHours;
+        this.actualHours = actualHours;
+    }
+
+    public double getEstimatedHours() {
+        return estimatedHours;
+    }
+
+    public void setEstimatedHours(double estimatedHours) {
+        this.estimatedHours = estimatedHours;
+    }
+
+    public double getActualHours() {
+        return actualHours;
+    }
+
+    public void setActualHours(double actualHours) {
+        this.actualHours = actualHours;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.eksamensprojekt.model;
 
 import com.example.eksamensprojekt.utils.DateUtil;
+import com.example.eksamensprojekt.utils.HourDistribution;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -30,6 +31,18 @@ public class Project {
     private List<Project> subProjects;
     private List<Task> tasks;
 
+    // Stored totals of the whole project tree, available without loading tasks and subprojects
+    private HoursRollup rollup;
+
+    // Bumped in the database on every change below the project, used to key cached data
+    private long subtreeVersion;
+
+    // The project this one is linked under in a loaded tree, so changes can clear its cached totals
+    private Project parentProject;
+
+    // Totals of the loaded tree below this project, computed once and cleared by the setters
+    private Totals totals;
+
     public Project() {
         this.subProjects = new ArrayList<>();
         this.tasks = new ArrayList<>();
@@ -53,6 +66,7 @@ public class Project {
         this.endDate = endDate;
         this.subProjects = subProjects;
         this.tasks = tasks;
+        linkChildren();
     }
 
     public int getProjectId() {
@@ -93,6 +107,14 @@ public class Project {
 
     public void setSubProjects(List<Project> subProjects) {
         this.subProjects = subProjects;
+        linkChildren();
+        invalidateTotals();
+    }
+
+    public void addSubProject(Project subProject) {
+        subProjects.add(subProject);
+        subProject.parentProject = this;
+        invalidateTotals();
     }
 
     public List<Task> getTasks() {
@@ -101,6 +123,22 @@ public class Project {
 
     public void setTasks(List<Task> tasks) {
         this.tasks = tasks;
+        linkChildren();
+        invalidateTotals();
+    }
+
+    // Points the subprojects and tasks back at this project, so their changes clear its cached totals
+    private void linkChildren() {
+        if (subProjects != null) {
+            for (Project sub : subProjects) {
+                sub.parentProject = this;
+            }
+        }
+        if (tasks != null) {
+            for (Task task : tasks) {
+                task.project = this;
+            }
+        }
     }
 
     public LocalDate getEndDate() {
@@ -109,6 +147,7 @@ public class Project {
 
     public void setEndDate(LocalDate endDate) {
         this.endDate = endDate;
+        invalidateTotals();
     }
 
     public LocalDate getStartDate() {
@@ -117,6 +156,7 @@ public class Project {
 
     public void setStartDate(LocalDate startDate) {
         this.startDate = startDate;
+        invalidateTotals();
     }
 
     public String getDescription() {
@@ -127,14 +167,28 @@ public class Project {
         this.description = description;
     }
 
+    public HoursRollup getRollup() {
+        return rollup;
+    }
+
+    public void setRollup(HoursRollup rollup) {
+        this.rollup = rollup;
+    }
+
+    public long getSubtreeVersion() {
+        return subtreeVersion;
+    }
+
+    public void setSubtreeVersion(long subtreeVersion) {
+        this.subtreeVersion = subtreeVersion;
+    }
+
     public double getEstimatedHours() {
-        return tasks.stream().mapToDouble(Task::getEstimatedHours).sum()
-                + subProjects.stream().mapToDouble(Project::getEstimatedHours).sum();
+        return getTotals().estimatedHours();
     }
 
     public double getActualHours() {
-        return tasks.stream().mapToDouble(Task::getActualHours).sum()
-                + subProjects.stream().mapToDouble(Project::getActualHours).sum();
+        return getTotals().actualHours();
     }
 
     public long getDays() {
@@ -142,40 +196,73 @@ public class Project {
     }
 
     public long getBusinessDays() {
-        return DateUtil.businessDaysBetween(startDate, endDate);
+        return getTotals().businessDays();
     }
 
     public double getAvgDailyEstimatedHours() {
-        return getEstimatedHours() / getBusinessDays();
+        return getTotals().avgDailyEstimatedHours();
+    }
+
+    // Computes the totals in one post-order pass over the tasks and subprojects.
+    // Each task and subproject caches its own totals, so the whole tree is summed only once.
+    private Totals getTotals() {
+        if (totals == null) {
+            double estimated = 0;
+            double actual = 0;
+            for (Task task : tasks) {
+                estimated += task.getEstimatedHours();
+                actual += task.getActualHours();
+            }
+            for (Project sub : subProjects) {
+                Totals subTotals = sub.getTotals();
+                estimated += subTotals.estimatedHours();
+                actual += subTotals.actualHours();
+            }
+
+            long businessDays = startDate == null || endDate == null ? 0 : DateUtil.businessDaysBetween(startDate, endDate);
+            double avgPerDay = businessDays == 0 ? 0 : estimated / businessDays;
+            totals = new Totals(estimated, actual, businessDays, avgPerDay);
+        }
+        return totals;
+    }
+
+    // Clears the cached totals of this project and every project above it.
+    // Stops at the first project without totals, since its ancestors cannot have been computed since.
+    void invalidateTotals() {
+        if (totals == null) {
+            return;
+        }
+        totals = null;
+        if (parentProject != null) {
+            parentProject.invalidateTotals();
+        }
     }
 
     // Returns a map of LocalDate -> estimated hours for the entire project,
     // including all tasks and subprojects, excluding weekends.
+    // Every day of the project is included, also days without hours.
     public Map<LocalDate, Double> getDistributedHours() {
-        Map<LocalDate, Double> map = new TreeMap<>();
-
-        LocalDate current = startDate;
-        while (!current.isAfter(endDate)) {
-            map.put(current, 0.0);
-            current = current.plusDays(1);
-        }
+        return getHourDistribution().toMap(startDate, endDate);
+    }
 
-        distributeHours(map);
-        return map;
+    // Collects the daily rate of every leaf task in the project and its subprojects, in one pass over the tree
+    public HourDistribution getHourDistribution() {
+        HourDistribution distribution = new HourDistribution();
+        addDistributedHours(distribution);
+        return distribution;
     }
 
-    // Private helper that recursively distributes estimated hours across
-    // tasks and subprojects, summing into the provided map.
-    private void distributeHours(Map<LocalDate, Double> map) {
-        // Include hours from tasks
+    // Private helper that recursively adds the leaf tasks of this project and its subprojects to the distribution
+    private void addDistributedHours(HourDistribution distribution) {
         for (Task task : tasks) {
-            Map<LocalDate, Double> taskHours = task.getDistributedTaskHours();
-            taskHours.forEach((date, hours) -> map.merge(date, hours, Double::sum));
+            task.addDistributedHours(distribution);
         }
 
-        // Include hours from subprojects recursively
         for (Project sub : subProjects) {
-            sub.distributeHours(map);
+            sub.addDistributedHours(distribution);
         }
     }
+
+    private record Totals(double estimatedHours, double actualHours, long businessDays, double avgDailyEstimatedHours) {
+    }
 }
@@ -0,0 +1,59 @@
+package com.example.eksamensprojekt.model;
+
+// A user on a project's team: the role assigned on the project itself, if any,
+// and the role on the nearest ancestor where the user is assigned, with the project it comes from
+public class ProjectMember {
+    private User user;
+    private ProjectRole directRole;
+    private ProjectRole inheritedRole;
+    private Integer inheritedFromProjectId;
+    private String inheritedFromProjectTitle;
+
+    public ProjectMember(User user) {
+        this.user = user;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public ProjectRole getDirectRole() {
+        return directRole;
+    }
+
+    public void setDirectRole(ProjectRole directRole) {
+        this.directRole = directRole;
+    }
+
+    public ProjectRole getInheritedRole() {
+        return inheritedRole;
+    }
+
+    public void setInheritedRole(ProjectRole inheritedRole) {
+        this.inheritedRole = inheritedRole;
+    }
+
+    public Integer getInheritedFromProjectId() {
+        return inheritedFromProjectId;
+    }
+
+    public void setInheritedFromProjectId(Integer inheritedFromProjectId) {
+        this.inheritedFromProjectId = inheritedFromProjectId;
+    }
+
+    public String getInheritedFromProjectTitle() {
+        return inheritedFromProjectTitle;
+    }
+
+    public void setInheritedFromProjectTitle(String inheritedFromProjectTitle) {
+        this.inheritedFromProjectTitle = inheritedFromProjectTitle;
+    }
+
+    public boolean isDirect() {
+        return directRole != null;
+    }
+}
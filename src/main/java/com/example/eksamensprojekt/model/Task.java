@@ -1,14 +1,14 @@
 package com.example.eksamensprojekt.model;
 
 import com.example.eksamensprojekt.utils.DateUtil;
+import com.example.eksamensprojekt.utils.HourDistribution;
 import org.springframework.format.annotation.DateTimeFormat;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 public class Task {
     private int taskId;
@@ -28,6 +28,20 @@ public class Task {
     private TaskStatus status;
     private List<Task> subTasks;
 
+    // Stored totals of the task and its subtasks, available without loading the subtasks
+    private HoursRollup rollup;
+
+    // Number of time entries logged directly on the task, from the hours summary
+    private int timeEntryCount;
+
+    // The task or project this task is linked under in a loaded tree, so changes can clear their cached totals.
+    // The project sets itself here when this task is one of its top-level tasks.
+    private Task parentTask;
+    Project project;
+
+    // Totals of the loaded tree below this task, computed once and cleared by the setters
+    private Totals totals;
+
     public Task() {
     }
 
@@ -53,6 +67,7 @@ public class Task {
         this.actualHours = actualHours;
         this.status = status;
         this.subTasks = subtasks;
+        linkSubTasks();
     }
 
     public int getTaskId() {
@@ -93,6 +108,7 @@ public class Task {
 
     public void setEndDate(LocalDate endDate) {
         this.endDate = endDate;
+        invalidateTotals();
     }
 
     public LocalDate getStartDate() {
@@ -101,6 +117,7 @@ public class Task {
 
     public void setStartDate(LocalDate startDate) {
         this.startDate = startDate;
+        invalidateTotals();
     }
 
     public String getDescription() {
@@ -111,29 +128,38 @@ public class Task {
         this.description = description;
     }
 
+    public HoursRollup getRollup() {
+        return rollup;
+    }
+
+    public void setRollup(HoursRollup rollup) {
+        this.rollup = rollup;
+    }
+
+    public int getTimeEntryCount() {
+        return timeEntryCount;
+    }
+
+    public void setTimeEntryCount(int timeEntryCount) {
+        this.timeEntryCount = timeEntryCount;
+    }
+
     public double getEstimatedHours() {
-        if (subTasks == null || subTasks.isEmpty()) {
-            return estimatedHours;
-        } else {
-            return subTasks.stream().mapToDouble(Task::getEstimatedHours).sum();
-        }
+        return getTotals().estimatedHours();
     }
 
     public void setEstimatedHours(double estimatedHours) {
         this.estimatedHours = estimatedHours;
+        invalidateTotals();
     }
 
     public double getActualHours() {
-        if (subTasks == null || subTasks.isEmpty()) {
-            return actualHours;
-        } else {
-            // actual hours are based on time entries. Therefore, actual hours of the parent task must be included in the sum.
-            return actualHours + subTasks.stream().mapToDouble(Task::getActualHours).sum();
-        }
+        return getTotals().actualHours();
     }
 
     public void setActualHours(double actualHours) {
         this.actualHours = actualHours;
+        invalidateTotals();
     }
 
     public TaskStatus getStatus() {
@@ -150,6 +176,26 @@ public class Task {
 
     public void setSubTasks(List<Task> subTasks) {
         this.subTasks = subTasks;
+        linkSubTasks();
+        invalidateTotals();
+    }
+
+    // Points the subtasks back at this task, so their changes clear its cached totals
+    private void linkSubTasks() {
+        if (subTasks != null) {
+            for (Task sub : subTasks) {
+                sub.parentTask = this;
+            }
+        }
+    }
+
+    public void addSubTask(Task subTask) {
+        if (subTasks == null) {
+            subTasks = new ArrayList<>();
+        }
+        subTasks.add(subTask);
+        subTask.parentTask = this;
+        invalidateTotals();
     }
 
     public boolean isSubtask() {
@@ -161,43 +207,72 @@ public class Task {
     }
 
     public long getBusinessDays() {
-        return DateUtil.businessDaysBetween(startDate,endDate);
+        return getTotals().businessDays();
     }
 
     public double getAvgEstimatedHoursPerBusinessDay() {
-        long businessDays = getBusinessDays();
-        return businessDays == 0 ? 0 : getEstimatedHours() / businessDays;
+        return getTotals().avgEstimatedHoursPerBusinessDay();
+    }
+
+    // Computes the totals in one post-order pass: every subtask is computed (and cached) before its parent,
+    // so reading the totals of every task in a tree is linear in the number of tasks.
+    private Totals getTotals() {
+        if (totals == null) {
+            double estimated = estimatedHours;
+            double actual = actualHours;
+            if (subTasks != null && !subTasks.isEmpty()) {
+                // the parent's own estimate is replaced by the sum of its subtasks
+                estimated = 0;
+                for (Task sub : subTasks) {
+                    Totals subTotals = sub.getTotals();
+                    estimated += subTotals.estimatedHours();
+                    // actual hours are based on time entries. Therefore, actual hours of the parent task must be included in the sum.
+                    actual += subTotals.actualHours();
+                }
+            }
+
+            long businessDays = startDate == null || endDate == null ? 0 : DateUtil.businessDaysBetween(startDate, endDate);
+            double avgPerDay = businessDays == 0 ? 0 : estimated / businessDays;
+            totals = new Totals(estimated, actual, businessDays, avgPerDay);
+        }
+        return totals;
+    }
+
+    // Clears the cached totals of this task and everything above it.
+    // Stops at the first task without totals, since its ancestors cannot have been computed since.
+    void invalidateTotals() {
+        if (totals == null) {
+            return;
+        }
+        totals = null;
+        if (parentTask != null) {
+            parentTask.invalidateTotals();
+        } else if (project != null) {
+            project.invalidateTotals();
+        }
     }
 
     // Returns a map of LocalDate -> estimated hours for the task,
     // including all subtasks, excluding weekends.
     public Map<LocalDate, Double> getDistributedTaskHours () {
-        Map<LocalDate, Double> map = new TreeMap<>();
-        distributeTaskHours(map);
-        return map;
+        HourDistribution distribution = new HourDistribution();
+        addDistributedHours(distribution);
+        return distribution.toMap();
     }
 
-    // Private helper that recursively distributes estimated hours across
-    // tasks and subtasks, summing into the provided map.
-    private void distributeTaskHours (Map<LocalDate, Double> map) {
-
-        if(subTasks == null || subTasks.isEmpty()) {
-            double dailyHrs = getAvgEstimatedHoursPerBusinessDay();
-
-            LocalDate current = startDate;
-
-            while (!current.isAfter(endDate)) {
-                DayOfWeek dow = current.getDayOfWeek();
-                if (dow != DayOfWeek.SATURDAY && dow != DayOfWeek.SUNDAY) {
-                    map.merge(current, dailyHrs, Double::sum);
-                }
-                current = current.plusDays(1);
-            }
+    // Adds the daily rate of every leaf task below this one to the distribution.
+    // Subtasks are not added themselves, since their hours are already covered by their own subtasks.
+    void addDistributedHours(HourDistribution distribution) {
+        if (subTasks == null || subTasks.isEmpty()) {
+            distribution.addDailyRate(startDate, endDate, getAvgEstimatedHoursPerBusinessDay());
         } else {
             for (Task sub : subTasks) {
-                sub.distributeTaskHours(map);
+                sub.addDistributedHours(distribution);
             }
         }
     }
+
+    private record Totals(double estimatedHours, double actualHours, long businessDays, double avgEstimatedHoursPerBusinessDay) {
+    }
 }
 
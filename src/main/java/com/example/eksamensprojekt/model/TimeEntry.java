@@ -1,8 +1,13 @@
 package com.example.eksamensprojekt.model;
 
+import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
 
 public class TimeEntry {
     private int timeEntryId;
@@ -15,7 +20,14 @@ public class TimeEntry {
 
     private String userEmail;
 
+    // The day the hours were worked
+    @NotNull(message = "Dato skal udfyldes.")
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    private LocalDate workDate;
+
+    // One entry covers one day. The upper bound also rejects values like Infinity that would overflow the column.
     @Positive(message = "Registrerede timer skal være mere end 0.")
+    @DecimalMax(value = "24", message = "Registrerede timer kan ikke være mere end 24.")
     private double hoursWorked;
 
     @NotBlank(message = "Beskrivelse kan ikke være tom.")
@@ -24,11 +36,12 @@ public class TimeEntry {
 
     public TimeEntry(){}
 
-    public TimeEntry(int timeEntryId, int taskId, int userId, String userEmail, double hoursWorked, String description) {
+    public TimeEntry(int timeEntryId, int taskId, int userId, String userEmail, LocalDate workDate, double hoursWorked, String description) {
         this.timeEntryId = timeEntryId;
         this.taskId = taskId;
         this.userId = userId;
         this.userEmail = userEmail;
+        this.workDate = workDate;
         this.hoursWorked = hoursWorked;
         this.description = description;
     }
@@ -65,6 +78,14 @@ public class TimeEntry {
         this.userEmail = userEmail;
     }
 
+    public LocalDate getWorkDate() {
+        return workDate;
+    }
+
+    public void setWorkDate(LocalDate workDate) {
+        this.workDate = workDate;
+    }
+
     public double getHoursWorked() {
         return hoursWorked;
     }
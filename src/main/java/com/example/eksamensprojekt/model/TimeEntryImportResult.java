@@ -0,0 +1,58 @@
+package com.example.eksamensprojekt.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Outcome of a bulk time entry import: how many rows were saved, and why the others were not.
+// Only the first rejected rows are kept, so a bad file does not fill the page.
+public class TimeEntryImportResult {
+    private static final int MAX_REPORTED_ROWS = 100;
+
+    private int importedCount;
+    private int rejectedCount;
+    private final List<RejectedRow> rejectedRows = new ArrayList<>();
+
+    public void addImported(int count) {
+        importedCount += count;
+    }
+
+    public void reject(int row, String reason) {
+        rejectedCount++;
+        if (rejectedRows.size() < MAX_REPORTED_ROWS) {
+            rejectedRows.add(new RejectedRow(row, reason));
+        }
+    }
+
+    public int getImportedCount() {
+        return importedCount;
+    }
+
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    // Rows rejected while reading are reported before rows rejected when their batch is saved, so sort them by row
+    public List<RejectedRow> getRejectedRows() {
+        return rejectedRows.stream().sorted(Comparator.comparingInt(RejectedRow::getRow)).toList();
+    }
+
+    public static class RejectedRow {
+        private final int row;
+        private final String reason;
+
+        public RejectedRow(int row, String reason) {
+            this.row = row;
+            this.reason = reason;
+        }
+
+        // Line number in a CSV file, position in the array of a JSON file
+        public int getRow() {
+            return row;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.eksamensprojekt.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// One page of time entries, newest first.
+// The next page starts after the last entry of this one (keyset pagination), so no rows are skipped with OFFSET.
+public class TimeEntryPage {
+    private final List<TimeEntry> entries;
+    private final boolean hasNext;
+
+    public TimeEntryPage(List<TimeEntry> entries, boolean hasNext) {
+        this.entries = entries;
+        this.hasNext = hasNext;
+    }
+
+    public List<TimeEntry> getEntries() {
+        return entries;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    // Work date and id of the last entry, passed back as the cursor of the next page
+    public LocalDate getNextBeforeDate() {
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1).getWorkDate();
+    }
+
+    public Integer getNextBeforeId() {
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1).getTimeEntryId();
+    }
+}
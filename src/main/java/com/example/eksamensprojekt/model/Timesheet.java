@@ -0,0 +1,57 @@
+package com.example.eksamensprojekt.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// One week of a user's time: the tasks the user can log on, and the hours already logged per task and day
+public class Timesheet {
+    public static final int DAYS = 7;
+
+    private final LocalDate weekStart;
+    private final List<Task> tasks;
+    private final Map<Integer, double[]> loggedHoursByTask = new HashMap<>();
+    private final double[] dayTotals = new double[DAYS];
+
+    public Timesheet(LocalDate weekStart, List<Task> tasks, List<TimeEntry> loggedEntries) {
+        this.weekStart = weekStart;
+        this.tasks = tasks;
+
+        for (TimeEntry entry : loggedEntries) {
+            int day = (int) (entry.getWorkDate().toEpochDay() - weekStart.toEpochDay());
+            if (day < 0 || day >= DAYS) {
+                continue;
+            }
+            loggedHoursByTask.computeIfAbsent(entry.getTaskId(), id -> new double[DAYS])[day] += entry.getHoursWorked();
+            dayTotals[day] += entry.getHoursWorked();
+        }
+    }
+
+    public LocalDate getWeekStart() {
+        return weekStart;
+    }
+
+    public List<LocalDate> getDays() {
+        List<LocalDate> days = new ArrayList<>(DAYS);
+        for (int i = 0; i < DAYS; i++) {
+            days.add(weekStart.plusDays(i));
+        }
+        return days;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    // Hours the user has logged on the task on the given day of the week (0 is Monday)
+    public double getLoggedHours(int taskId, int day) {
+        double[] hours = loggedHoursByTask.get(taskId);
+        return hours != null ? hours[day] : 0;
+    }
+
+    public double getDayTotal(int day) {
+        return dayTotals[day];
+    }
+}
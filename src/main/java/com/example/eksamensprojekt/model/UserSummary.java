@@ -0,0 +1,48 @@
+package com.example.eksamensprojekt.model;
+
+// The public part of a user, used where a list of users is shown or sent to the browser
+public class UserSummary {
+    private int userId;
+    private String email;
+    private String name;
+    private String title;
+
+    public UserSummary(int userId, String email, String name, String title) {
+        this.userId = userId;
+        this.email = email;
+        this.name = name;
+        this.title = title;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+}
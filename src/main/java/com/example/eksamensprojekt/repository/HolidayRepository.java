@@ -0,0 +1,22 @@
+package com.example.eksamensprojekt.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public class HolidayRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public HolidayRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Public holidays and company closure days
+    public List<LocalDate> getHolidayDates() {
+        String sql = "SELECT holiday_date FROM holiday ORDER BY holiday_date";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getDate("holiday_date").toLocalDate());
+    }
+}
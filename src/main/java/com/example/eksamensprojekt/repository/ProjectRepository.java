@@ -1,7 +1,11 @@
 package com.example.eksamensprojekt.repository;
 
+import com.example.eksamensprojekt.model.EffectivePermission;
+import com.example.eksamensprojekt.model.HoursRollup;
 import com.example.eksamensprojekt.model.Project;
+import com.example.eksamensprojekt.model.ProjectMember;
 import com.example.eksamensprojekt.model.ProjectRole;
+import com.example.eksamensprojekt.model.User;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -12,8 +16,16 @@ import org.springframework.transaction.annotation.Transactional;
 import java.sql.Date;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.sql.PreparedStatement;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Repository
 public class ProjectRepository {
@@ -25,9 +37,24 @@ public class ProjectRepository {
                 p.title,
                 p.description,
                 p.start_date,
-                p.end_date
+                p.end_date,
+                p.subtree_version,
+                COALESCE(pr.estimated_hours, 0) AS rollup_estimated_hours,
+                COALESCE(pr.actual_hours, 0) AS rollup_actual_hours
             FROM
                 project p
+            LEFT JOIN project_rollup pr ON p.project_id = pr.project_id
+            """;
+
+    // Every ancestor/descendant pair derived from parent_project_id, including each project with itself at depth 0
+    private static final String CLOSURE_PATHS_CTE = """
+            WITH RECURSIVE paths (ancestor_id, descendant_id, depth) AS (
+                SELECT project_id, project_id, 0 FROM project
+                UNION ALL
+                SELECT paths.ancestor_id, child.project_id, paths.depth + 1
+                FROM paths
+                JOIN project child ON child.parent_project_id = paths.descendant_id
+            )
             """;
 
     private final JdbcTemplate jdbcTemplate;
@@ -69,6 +96,17 @@ public class ProjectRepository {
         return jdbcTemplate.query(sql, getProjectRowMapper(), parentProjectId);
     }
 
+    // Returns the project and all of its descendants in a single query, using the closure table
+    public List<Project> getProjectSubtree(int projectId) {
+        String sql = BASE_PROJECT_SQL + """
+                JOIN project_closure pc ON p.project_id = pc.descendant_id
+                WHERE pc.ancestor_id = ?
+                ORDER BY p.project_id
+                """;
+
+        return jdbcTemplate.query(sql, getProjectRowMapper(), projectId);
+    }
+
     @Transactional
     public int createProject(Project project) {
         String sql = "INSERT INTO project (owner_id, parent_project_id, title, description, start_date, end_date) VALUES (?,?,?,?,?,?)";
@@ -92,9 +130,197 @@ public class ProjectRepository {
 
         jdbcTemplate.update(sql2, projectId, project.getOwnerId(), "OWNER");
 
+        // Closure rows: the project itself, plus every ancestor of the parent one level further away
+        String sql3 = "INSERT INTO project_closure (ancestor_id, descendant_id, depth) VALUES (?,?,0)";
+        jdbcTemplate.update(sql3, projectId, projectId);
+
+        if (project.getParentProjectId() != null) {
+            String sql4 = """
+                    INSERT INTO project_closure (ancestor_id, descendant_id, depth)
+                    SELECT ancestor_id, ?, depth + 1
+                    FROM project_closure
+                    WHERE descendant_id = ?
+                    """;
+            jdbcTemplate.update(sql4, projectId, project.getParentProjectId());
+        }
+
         return (projectId != null) ? projectId.intValue() : -1;
     }
 
+    // Moves a project (and its subtree) below a new parent, or to the top level if newParentProjectId is null.
+    // The caller must make sure the new parent is not inside the moved subtree.
+    @Transactional
+    public int moveProject(int projectId, Integer newParentProjectId) {
+        String sql = "UPDATE project SET parent_project_id = ? WHERE project_id = ?";
+        int rowsAffected = jdbcTemplate.update(sql, newParentProjectId, projectId);
+        if (rowsAffected == 0) {
+            return 0;
+        }
+
+        // Detach the subtree: remove every path from an outside ancestor into the subtree.
+        // The inner DISTINCT forces MySQL to materialize the derived table, which allows reading the table being deleted from.
+        String sql2 = """
+                DELETE FROM project_closure
+                WHERE descendant_id IN (SELECT d.id FROM (SELECT DISTINCT descendant_id AS id FROM project_closure WHERE ancestor_id = ?) d)
+                  AND ancestor_id NOT IN (SELECT a.id FROM (SELECT DISTINCT descendant_id AS id FROM project_closure WHERE ancestor_id = ?) a)
+                """;
+        jdbcTemplate.update(sql2, projectId, projectId);
+
+        // Attach the subtree: connect every ancestor of the new parent to every node in the subtree
+        if (newParentProjectId != null) {
+            String sql3 = """
+                    INSERT INTO project_closure (ancestor_id, descendant_id, depth)
+                    SELECT above.ancestor_id, below.descendant_id, above.depth + below.depth + 1
+                    FROM project_closure above
+                    CROSS JOIN project_closure below
+                    WHERE above.descendant_id = ? AND below.ancestor_id = ?
+                    """;
+            jdbcTemplate.update(sql3, newParentProjectId, projectId);
+        }
+
+        return rowsAffected;
+    }
+
+    // Ids of the project and all of its subprojects
+    public List<Integer> getSubtreeProjectIds(int projectId) {
+        String sql = "SELECT descendant_id FROM project_closure WHERE ancestor_id = ?";
+        return jdbcTemplate.queryForList(sql, Integer.class, projectId);
+    }
+
+    public boolean isDescendantOf(int projectId, int ancestorProjectId) {
+        String sql = "SELECT COUNT(*) FROM project_closure WHERE ancestor_id = ? AND descendant_id = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, ancestorProjectId, projectId);
+        return count != null && count > 0;
+    }
+
+    // The parent, the siblings and the direct children of a project, in that order
+    public List<Project> getMoveTargets(int projectId) {
+        String sql = BASE_PROJECT_SQL + """
+                JOIN (
+                    SELECT ancestor_id AS project_id, 0 AS sort_order
+                    FROM project_closure
+                    WHERE descendant_id = ? AND depth = 1
+                    UNION ALL
+                    SELECT sibling.descendant_id, 1
+                    FROM project_closure parent
+                    JOIN project_closure sibling ON sibling.ancestor_id = parent.ancestor_id AND sibling.depth = 1
+                    WHERE parent.descendant_id = ? AND parent.depth = 1 AND sibling.descendant_id <> ?
+                    UNION ALL
+                    SELECT descendant_id, 2
+                    FROM project_closure
+                    WHERE ancestor_id = ? AND depth = 1
+                ) rel ON p.project_id = rel.project_id
+                ORDER BY rel.sort_order, p.project_id
+                """;
+
+        return jdbcTemplate.query(sql, getProjectRowMapper(), projectId, projectId, projectId, projectId);
+    }
+
+    // Access and role of a user on a project in one query over the project and all of its ancestors.
+    // The user has access if they own or are assigned to any of them.
+    // The role is the direct role, or else the role on the nearest ancestor where the user is assigned.
+    public EffectivePermission getEffectivePermission(int projectId, int userId) {
+        String sql = """
+                SELECT
+                    r.role,
+                    r.role_name
+                FROM project_closure pc
+                JOIN project p ON p.project_id = pc.ancestor_id
+                LEFT JOIN project_users pu ON pu.project_id = pc.ancestor_id AND pu.user_id = ?
+                LEFT JOIN project_role r ON r.role = pu.role
+                WHERE pc.descendant_id = ? AND (p.owner_id = ? OR pu.user_id IS NOT NULL)
+                ORDER BY CASE WHEN r.role IS NULL THEN 1 ELSE 0 END, pc.depth
+                LIMIT 1
+                """;
+
+        List<EffectivePermission> result = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            String role = rs.getString("role");
+            return new EffectivePermission(projectId, userId, true,
+                    role != null ? new ProjectRole(role, rs.getString("role_name")) : null);
+        }, userId, projectId, userId);
+
+        return result.isEmpty() ? EffectivePermission.noAccess(projectId, userId) : result.getFirst();
+    }
+
+    // Same rules as getEffectivePermission, for many projects in one query.
+    // Returns only the projects the user has access to, keyed by project id.
+    public Map<Integer, EffectivePermission> getEffectivePermissions(Collection<Integer> projectIds, int userId) {
+        Map<Integer, EffectivePermission> result = new HashMap<>();
+        if (projectIds.isEmpty()) {
+            return result;
+        }
+
+        String sql = """
+                SELECT ranked.project_id, ranked.role, ranked.role_name
+                FROM (
+                    SELECT
+                        pc.descendant_id AS project_id,
+                        r.role,
+                        r.role_name,
+                        ROW_NUMBER() OVER (
+                            PARTITION BY pc.descendant_id
+                            ORDER BY CASE WHEN r.role IS NULL THEN 1 ELSE 0 END, pc.depth
+                        ) AS rn
+                    FROM project_closure pc
+                    JOIN project p ON p.project_id = pc.ancestor_id
+                    LEFT JOIN project_users pu ON pu.project_id = pc.ancestor_id AND pu.user_id = ?
+                    LEFT JOIN project_role r ON r.role = pu.role
+                    WHERE pc.descendant_id IN (%s) AND (p.owner_id = ? OR pu.user_id IS NOT NULL)
+                ) ranked
+                WHERE ranked.rn = 1
+                """.formatted(String.join(",", Collections.nCopies(projectIds.size(), "?")));
+
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        params.addAll(projectIds);
+        params.add(userId);
+
+        jdbcTemplate.query(sql, rs -> {
+            int projectId = rs.getInt("project_id");
+            String role = rs.getString("role");
+            result.put(projectId, new EffectivePermission(projectId, userId, true,
+                    role != null ? new ProjectRole(role, rs.getString("role_name")) : null));
+        }, params.toArray());
+
+        return result;
+    }
+
+    // Which of the users have access to which of the projects, in one query over the closure table.
+    // Same rule as getEffectivePermissions: a user has access if they own or are assigned to the project or an ancestor.
+    // Returns the users with access keyed by project id; projects nobody has access to are left out.
+    public Map<Integer, Set<Integer>> getUsersWithAccess(Collection<Integer> projectIds, Collection<Integer> userIds) {
+        Map<Integer, Set<Integer>> result = new HashMap<>();
+        if (projectIds.isEmpty() || userIds.isEmpty()) {
+            return result;
+        }
+
+        String projectParams = String.join(",", Collections.nCopies(projectIds.size(), "?"));
+        String userParams = String.join(",", Collections.nCopies(userIds.size(), "?"));
+        String sql = """
+                SELECT pc.descendant_id AS project_id, pu.user_id
+                FROM project_closure pc
+                JOIN project_users pu ON pu.project_id = pc.ancestor_id
+                WHERE pc.descendant_id IN (%1$s) AND pu.user_id IN (%2$s)
+                UNION
+                SELECT pc.descendant_id AS project_id, p.owner_id AS user_id
+                FROM project_closure pc
+                JOIN project p ON p.project_id = pc.ancestor_id
+                WHERE pc.descendant_id IN (%1$s) AND p.owner_id IN (%2$s)
+                """.formatted(projectParams, userParams);
+
+        List<Object> params = new ArrayList<>();
+        params.addAll(projectIds);
+        params.addAll(userIds);
+        params.addAll(projectIds);
+        params.addAll(userIds);
+
+        jdbcTemplate.query(sql, rs -> {
+            result.computeIfAbsent(rs.getInt("project_id"), id -> new HashSet<>()).add(rs.getInt("user_id"));
+        }, params.toArray());
+
+        return result;
+    }
+
     public boolean isUserAssignedToProject(int projectId, int userId) {
         String sql = "SELECT COUNT(*) FROM project_users WHERE project_id = ? AND user_id = ?";
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, projectId, userId);
@@ -115,6 +341,74 @@ public class ProjectRepository {
         return result.isEmpty() ? null : result.get(0);
     }
 
+    // Every user assigned to the project or one of its ancestors, in one query.
+    // Each member gets the direct role (depth 0) and the role on the nearest ancestor, with the project it comes from.
+    // Direct members come first, then by distance to the project they are assigned to.
+    public List<ProjectMember> getProjectRoster(int projectId) {
+        String sql = """
+                SELECT
+                    ranked.user_id,
+                    ranked.email,
+                    ranked.name,
+                    ranked.title,
+                    ranked.external,
+                    ranked.depth,
+                    ranked.source_project_id,
+                    ranked.source_project_title,
+                    ranked.role,
+                    ranked.role_name
+                FROM (
+                    SELECT
+                        ua.user_id,
+                        ua.email,
+                        ua.name,
+                        ua.title,
+                        ua.external,
+                        pc.depth,
+                        src.project_id AS source_project_id,
+                        src.title AS source_project_title,
+                        r.role,
+                        r.role_name,
+                        ROW_NUMBER() OVER (
+                            PARTITION BY ua.user_id, CASE WHEN pc.depth = 0 THEN 0 ELSE 1 END
+                            ORDER BY pc.depth
+                        ) AS rn
+                    FROM project_closure pc
+                    JOIN project_users pu ON pu.project_id = pc.ancestor_id
+                    JOIN project src ON src.project_id = pu.project_id
+                    JOIN project_role r ON r.role = pu.role
+                    JOIN user_account ua ON ua.user_id = pu.user_id
+                    WHERE pc.descendant_id = ?
+                ) ranked
+                WHERE ranked.rn = 1
+                ORDER BY ranked.depth, ranked.name, ranked.user_id
+                """;
+
+        // Up to two rows per user, merged in the order the members are first seen
+        Map<Integer, ProjectMember> members = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            int userId = rs.getInt("user_id");
+            ProjectMember member = members.get(userId);
+            if (member == null) {
+                // The password hash is never needed to show a team
+                member = new ProjectMember(new User(userId, rs.getString("email"), null,
+                        rs.getString("name"), rs.getString("title"), rs.getBoolean("external")));
+                members.put(userId, member);
+            }
+
+            ProjectRole role = new ProjectRole(rs.getString("role"), rs.getString("role_name"));
+            if (rs.getInt("depth") == 0) {
+                member.setDirectRole(role);
+            } else {
+                member.setInheritedRole(role);
+                member.setInheritedFromProjectId(rs.getInt("source_project_id"));
+                member.setInheritedFromProjectTitle(rs.getString("source_project_title"));
+            }
+        }, projectId);
+
+        return new ArrayList<>(members.values());
+    }
+
     public List<ProjectRole> getAllProjectRoles() {
         String sql = """
                 SELECT
@@ -153,10 +447,50 @@ public class ProjectRepository {
         jdbcTemplate.update(sql, projectId, userId);
     }
 
+    @Transactional
     public int deleteProject(int projectId) {
-        String sql = "DELETE FROM project WHERE project_id = ?";
+        // Remove the closure rows of the whole subtree, subprojects are deleted by the cascade on parent_project_id.
+        // The inner DISTINCT forces MySQL to materialize the derived table, which allows reading the table being deleted from.
+        String sql = """
+                DELETE FROM project_closure
+                WHERE descendant_id IN (SELECT d.id FROM (SELECT DISTINCT descendant_id AS id FROM project_closure WHERE ancestor_id = ?) d)
+                """;
+        jdbcTemplate.update(sql, projectId);
+
+        String sql2 = "DELETE FROM project WHERE project_id = ?";
 
-        return jdbcTemplate.update(sql, projectId);
+        return jdbcTemplate.update(sql2, projectId);
+    }
+
+    // Number of closure rows that are missing or should not be there, compared to parent_project_id
+    public int countProjectClosureDrift() {
+        String sql = CLOSURE_PATHS_CTE + """
+                SELECT
+                    (SELECT COUNT(*) FROM paths
+                     WHERE NOT EXISTS (SELECT 1 FROM project_closure pc
+                                       WHERE pc.ancestor_id = paths.ancestor_id
+                                         AND pc.descendant_id = paths.descendant_id
+                                         AND pc.depth = paths.depth))
+                    +
+                    (SELECT COUNT(*) FROM project_closure pc
+                     WHERE NOT EXISTS (SELECT 1 FROM paths
+                                       WHERE pc.ancestor_id = paths.ancestor_id
+                                         AND pc.descendant_id = paths.descendant_id
+                                         AND pc.depth = paths.depth))
+                """;
+        Integer drift = jdbcTemplate.queryForObject(sql, Integer.class);
+        return drift != null ? drift : 0;
+    }
+
+    // Recreates the closure table from parent_project_id. Also used to backfill existing databases.
+    @Transactional
+    public int rebuildProjectClosure() {
+        jdbcTemplate.update("DELETE FROM project_closure");
+
+        String sql = "INSERT INTO project_closure (ancestor_id, descendant_id, depth) "
+                + CLOSURE_PATHS_CTE
+                + "SELECT ancestor_id, descendant_id, depth FROM paths";
+        return jdbcTemplate.update(sql);
     }
 
     public int updateProject(Project updatedProject) {
@@ -170,18 +504,73 @@ public class ProjectRepository {
                 updatedProject.getProjectId());
     }
 
+    // Bumps the subtree version of the projects and every project above them.
+    // Called on any change to the tasks or subprojects of a project, so cached data keyed by the version goes stale.
+    public void bumpSubtreeVersions(Collection<Integer> projectIds) {
+        List<Integer> ids = projectIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+                UPDATE project SET subtree_version = subtree_version + 1
+                WHERE project_id IN (SELECT ancestor_id FROM project_closure WHERE descendant_id IN (%s))
+                """.formatted(String.join(",", Collections.nCopies(ids.size(), "?")));
+        jdbcTemplate.update(sql, ids.toArray());
+    }
+
+    // Bumps the hours version of the given projects only, not their ancestors.
+    // Logging time calls this instead of bumpSubtreeVersions, so entries under one root don't all wait on the root row.
+    public void bumpHoursVersions(Collection<Integer> projectIds) {
+        List<Integer> ids = projectIds.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+                UPDATE project SET hours_version = hours_version + 1
+                WHERE project_id IN (%s)
+                """.formatted(String.join(",", Collections.nCopies(ids.size(), "?")));
+        jdbcTemplate.update(sql, ids.toArray());
+    }
+
+    // Bumps the hours version of the task's own project
+    public void bumpHoursVersionForTask(int taskId) {
+        String sql = """
+                UPDATE project SET hours_version = hours_version + 1
+                WHERE project_id = (SELECT project_id FROM task WHERE task_id = ?)
+                """;
+        jdbcTemplate.update(sql, taskId);
+    }
+
+    // Sum of the hours versions in the project's subtree, which grows whenever time is logged anywhere below it
+    public long getSubtreeHoursVersion(int projectId) {
+        String sql = """
+                SELECT COALESCE(SUM(p.hours_version), 0)
+                FROM project_closure pc
+                JOIN project p ON p.project_id = pc.descendant_id
+                WHERE pc.ancestor_id = ?
+                """;
+        Long version = jdbcTemplate.queryForObject(sql, Long.class, projectId);
+        return version != null ? version : 0;
+    }
+
     private RowMapper<Project> getProjectRowMapper() {
-        return ((rs, rowNum) -> new Project(
-                rs.getInt("project_id"),
-                rs.getInt("owner_id"),
-                rs.getObject("parent_project_id", Integer.class),
-                rs.getString("title"),
-                rs.getString("description"),
-                rs.getDate("start_date") != null ? rs.getDate("start_date").toLocalDate() : null,
-                rs.getDate("end_date") != null ? rs.getDate("end_date").toLocalDate() : null,
-                new ArrayList<>(),
-                new ArrayList<>())
-        );
+        return ((rs, rowNum) -> {
+            Project project = new Project(
+                    rs.getInt("project_id"),
+                    rs.getInt("owner_id"),
+                    rs.getObject("parent_project_id", Integer.class),
+                    rs.getString("title"),
+                    rs.getString("description"),
+                    rs.getDate("start_date") != null ? rs.getDate("start_date").toLocalDate() : null,
+                    rs.getDate("end_date") != null ? rs.getDate("end_date").toLocalDate() : null,
+                    new ArrayList<>(),
+                    new ArrayList<>());
+            project.setRollup(new HoursRollup(rs.getDouble("rollup_estimated_hours"), rs.getDouble("rollup_actual_hours")));
+            project.setSubtreeVersion(rs.getLong("subtree_version"));
+            return project;
+        });
     }
 
     private RowMapper<ProjectRole> getProjectRoleRowMapper() {
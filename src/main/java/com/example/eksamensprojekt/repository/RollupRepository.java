@@ -0,0 +1,132 @@
+package com.example.eksamensprojekt.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+// Maintains task_rollup and project_rollup: estimated and logged hours of each task and project
+// including everything below it. Estimates are summed over leaf tasks only, since the estimate of
+// a parent task is the sum of its subtasks. Logged hours are summed over every task.
+// Only the ancestors of a changed node are recomputed, each in one set-based statement.
+@Repository
+public class RollupRepository {
+    private static final String LEAF_ESTIMATE = """
+            CASE WHEN NOT EXISTS (SELECT 1 FROM task child WHERE child.parent_task_id = %1$s.task_id)
+                 THEN %1$s.estimated_hours ELSE 0 END
+            """;
+
+    // Totals per task, restricted by a condition on tc.ancestor_id
+    private static final String TASK_ROLLUP_SELECT = """
+            SELECT
+                tc.ancestor_id AS task_id,
+                SUM(%s) AS estimated_hours,
+                SUM(COALESCE(ths.total_hours, 0)) AS actual_hours
+            FROM task_closure tc
+            JOIN task d ON d.task_id = tc.descendant_id
+            LEFT JOIN task_hours_summary ths ON ths.task_id = d.task_id
+            WHERE %%s
+            GROUP BY tc.ancestor_id
+            """.formatted(LEAF_ESTIMATE.formatted("d"));
+
+    // Totals per project, restricted by a condition on pc.ancestor_id
+    private static final String PROJECT_ROLLUP_SELECT = """
+            SELECT
+                pc.ancestor_id AS project_id,
+                COALESCE(SUM(%s), 0) AS estimated_hours,
+                COALESCE(SUM(ths.total_hours), 0) AS actual_hours
+            FROM project_closure pc
+            LEFT JOIN task t ON t.project_id = pc.descendant_id
+            LEFT JOIN task_hours_summary ths ON ths.task_id = t.task_id
+            WHERE %%s
+            GROUP BY pc.ancestor_id
+            """.formatted(LEAF_ESTIMATE.formatted("t"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Recomputes the given tasks and all of their ancestors. Ids of deleted tasks are ignored.
+    @Transactional
+    public void refreshTaskRollups(Collection<Integer> taskIds) {
+        List<Integer> ids = taskIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        String ancestors = "SELECT ancestor_id FROM task_closure WHERE descendant_id IN (" + placeholders(ids.size()) + ")";
+
+        jdbcTemplate.update("DELETE FROM task_rollup WHERE task_id IN (" + ancestors + ")", ids.toArray());
+        jdbcTemplate.update("INSERT INTO task_rollup (task_id, estimated_hours, actual_hours) "
+                + TASK_ROLLUP_SELECT.formatted("tc.ancestor_id IN (" + ancestors + ")"), ids.toArray());
+    }
+
+    // Recomputes the given projects and all of their ancestors. Ids of deleted projects are ignored.
+    @Transactional
+    public void refreshProjectRollups(Collection<Integer> projectIds) {
+        List<Integer> ids = projectIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        String ancestors = "SELECT ancestor_id FROM project_closure WHERE descendant_id IN (" + placeholders(ids.size()) + ")";
+
+        jdbcTemplate.update("DELETE FROM project_rollup WHERE project_id IN (" + ancestors + ")", ids.toArray());
+        jdbcTemplate.update("INSERT INTO project_rollup (project_id, estimated_hours, actual_hours) "
+                + PROJECT_ROLLUP_SELECT.formatted("pc.ancestor_id IN (" + ancestors + ")"), ids.toArray());
+    }
+
+    // Recomputes everything after hours were logged on a task: the task, its ancestors and its projects
+    @Transactional
+    public void refreshRollupsForTask(int taskId) {
+        refreshTaskRollups(List.of(taskId));
+
+        List<Integer> projectIds = jdbcTemplate.queryForList("SELECT project_id FROM task WHERE task_id = ?", Integer.class, taskId);
+        refreshProjectRollups(projectIds);
+    }
+
+    // Number of stored rows that are missing, extra or differ from a fresh computation
+    public int countRollupDrift() {
+        return countDrift("task_rollup", "task_id", TASK_ROLLUP_SELECT.formatted("1 = 1"))
+                + countDrift("project_rollup", "project_id", PROJECT_ROLLUP_SELECT.formatted("1 = 1"));
+    }
+
+    // Recreates both tables from scratch. Also used to backfill existing databases.
+    @Transactional
+    public void rebuildRollups() {
+        jdbcTemplate.update("DELETE FROM task_rollup");
+        jdbcTemplate.update("INSERT INTO task_rollup (task_id, estimated_hours, actual_hours) "
+                + TASK_ROLLUP_SELECT.formatted("1 = 1"));
+
+        jdbcTemplate.update("DELETE FROM project_rollup");
+        jdbcTemplate.update("INSERT INTO project_rollup (project_id, estimated_hours, actual_hours) "
+                + PROJECT_ROLLUP_SELECT.formatted("1 = 1"));
+    }
+
+    private int countDrift(String table, String idColumn, String freshSelect) {
+        String sql = """
+                SELECT
+                    (SELECT COUNT(*) FROM (%1$s) fresh
+                     LEFT JOIN %2$s stored ON stored.%3$s = fresh.%3$s
+                     WHERE stored.%3$s IS NULL
+                        OR stored.estimated_hours <> fresh.estimated_hours
+                        OR stored.actual_hours <> fresh.actual_hours)
+                    +
+                    (SELECT COUNT(*) FROM %2$s stored
+                     WHERE NOT EXISTS (SELECT 1 FROM (%1$s) fresh WHERE fresh.%3$s = stored.%3$s))
+                """.formatted(freshSelect, table, idColumn);
+        Integer drift = jdbcTemplate.queryForObject(sql, Integer.class);
+        return drift != null ? drift : 0;
+    }
+
+    // Builds "?,?,?" for an IN clause with the given number of parameters
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
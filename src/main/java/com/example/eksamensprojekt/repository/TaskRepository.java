@@ -1,21 +1,39 @@
 package com.example.eksamensprojekt.repository;
 
+import com.example.eksamensprojekt.model.HoursRollup;
 import com.example.eksamensprojekt.model.Task;
 import com.example.eksamensprojekt.model.TaskStatus;
 import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.model.TimeEntryPage;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Types;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 @Repository
 public class TaskRepository {
+    // Rows fetched per round trip by exports. MySQL only honours it with useCursorFetch=true,
+    // which the dev and prod profiles set on the datasource.
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
     private static final String BASE_TASK_SQL = """
             SELECT
                 t.task_id,
@@ -26,18 +44,54 @@ public class TaskRepository {
                 t.end_date,
                 t.description,
                 t.estimated_hours,
-                COALESCE(te.total_hours, 0) AS actual_hours,
+                COALESCE(ths.total_hours, 0) AS actual_hours,
+                COALESCE(ths.entry_count, 0) AS time_entry_count,
                 t.status_id,
-                ts.status_name
+                ts.status_name,
+                COALESCE(tr.estimated_hours, t.estimated_hours) AS rollup_estimated_hours,
+                COALESCE(tr.actual_hours, ths.total_hours, 0) AS rollup_actual_hours
             FROM task t
-            LEFT JOIN (
-                SELECT task_id, SUM(hours_worked) AS total_hours
-                FROM time_entry
-                GROUP BY task_id
-            ) te ON t.task_id = te.task_id
+            LEFT JOIN task_hours_summary ths ON t.task_id = ths.task_id
+            LEFT JOIN task_rollup tr ON t.task_id = tr.task_id
             JOIN task_status ts ON t.status_id = ts.status_id
             """;
 
+    private static final String BASE_TIME_ENTRY_SQL = """
+            SELECT
+                te.time_entry_id,
+                te.task_id,
+                te.user_id,
+                u.email,
+                te.work_date,
+                te.hours_worked,
+                te.description
+            FROM time_entry te
+            JOIN user_account u ON te.user_id = u.user_id
+            """;
+
+    // Adds hours and entries to the summary row of a task, creating it the first time.
+    // VALUES(col) is deprecated since MySQL 8.0.20 in favour of a row alias (VALUES (?, ?, ?) AS new ... new.col),
+    // but the H2 MySQL mode the tests run on supports neither the alias nor the INSERT ... SELECT form.
+    // MySQL 8 still accepts VALUES(col), so switch to the alias once the tests can run it.
+    private static final String ADD_TO_HOURS_SUMMARY_SQL = """
+            INSERT INTO task_hours_summary (task_id, total_hours, entry_count)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                total_hours = total_hours + VALUES(total_hours),
+                entry_count = entry_count + VALUES(entry_count)
+            """;
+
+    // Every ancestor/descendant pair derived from parent_task_id, including each task with itself at depth 0
+    private static final String CLOSURE_PATHS_CTE = """
+            WITH RECURSIVE paths (ancestor_id, descendant_id, depth) AS (
+                SELECT task_id, task_id, 0 FROM task
+                UNION ALL
+                SELECT paths.ancestor_id, child.task_id, paths.depth + 1
+                FROM paths
+                JOIN task child ON child.parent_task_id = paths.descendant_id
+            )
+            """;
+
     private final JdbcTemplate jdbcTemplate;
 
     public TaskRepository(JdbcTemplate jdbcTemplate) {
@@ -56,9 +110,82 @@ public class TaskRepository {
         return jdbcTemplate.query(sql, getTaskRowMapper(), projectId);
     }
 
-    public void updateTaskProjectId(int taskId, int newProjectId) {
-        String sql = "UPDATE task SET project_id = ? WHERE task_id = ?";
-        jdbcTemplate.update(sql, newProjectId, taskId);
+    // Returns every task (parents and subtasks) of the given projects in a single query
+    public List<Task> getTasksByProjectIds(Collection<Integer> projectIds) {
+        if (projectIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = BASE_TASK_SQL + "WHERE t.project_id IN (" + placeholders(projectIds.size()) + ") ORDER BY t.task_id";
+        return jdbcTemplate.query(sql, getTaskRowMapper(), projectIds.toArray());
+    }
+
+    // Tasks the user can log time on in the given days: tasks running in the period, in projects the user owns
+    // or is assigned to (directly or through an ancestor project), plus tasks the user already logged time on then.
+    public List<Task> getTimesheetTasks(int userId, LocalDate from, LocalDate to) {
+        String sql = BASE_TASK_SQL + """
+                WHERE (t.start_date <= ? AND t.end_date >= ?
+                       AND EXISTS (
+                           SELECT 1
+                           FROM project_closure pc
+                           JOIN project p ON p.project_id = pc.ancestor_id
+                           LEFT JOIN project_users pu ON pu.project_id = pc.ancestor_id AND pu.user_id = ?
+                           WHERE pc.descendant_id = t.project_id AND (p.owner_id = ? OR pu.user_id IS NOT NULL)))
+                   OR t.task_id IN (SELECT task_id FROM time_entry WHERE user_id = ? AND work_date BETWEEN ? AND ?)
+                ORDER BY t.project_id, t.task_id
+                """;
+
+        return jdbcTemplate.query(sql, getTaskRowMapper(),
+                Date.valueOf(to), Date.valueOf(from), userId, userId, userId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    // Returns the project id of each of the given tasks, keyed by task id. Tasks that do not exist are left out.
+    public Map<Integer, Integer> getProjectIdsByTaskIds(Collection<Integer> taskIds) {
+        Map<Integer, Integer> projectIds = new HashMap<>();
+        if (taskIds.isEmpty()) {
+            return projectIds;
+        }
+
+        String sql = "SELECT task_id, project_id FROM task WHERE task_id IN (" + placeholders(taskIds.size()) + ")";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> projectIds.put(rs.getInt("task_id"), rs.getInt("project_id")),
+                taskIds.toArray());
+        return projectIds;
+    }
+
+    // Returns the task and all of its descendants in a single query
+    public List<Task> getTaskSubtree(int taskId) {
+        String sql = BASE_TASK_SQL + """
+                JOIN task_closure tc ON t.task_id = tc.descendant_id
+                WHERE tc.ancestor_id = ?
+                ORDER BY t.task_id
+                """;
+
+        return jdbcTemplate.query(sql, getTaskRowMapper(), taskId);
+    }
+
+    public boolean isDescendantOf(int taskId, int ancestorTaskId) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM task_closure WHERE ancestor_id = ? AND descendant_id = ?)";
+        Boolean exists = jdbcTemplate.queryForObject(sql, Boolean.class, ancestorTaskId, taskId);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    // Moves the task and all of its subtasks to another project in a single update.
+    // A moved subtask becomes a top-level task, since its parent stays in the old project.
+    // Returns the number of tasks moved.
+    @Transactional
+    public int moveTaskSubtreeToProject(int taskId, int newProjectId) {
+        String sql = "UPDATE task SET parent_task_id = NULL WHERE task_id = ? AND parent_task_id IS NOT NULL";
+        if (jdbcTemplate.update(sql, taskId) > 0) {
+            reparentTaskClosure(taskId, null);
+        }
+
+        // The inner DISTINCT forces MySQL to materialize the derived table, which keeps the subquery independent of the update
+        String sql2 = """
+                UPDATE task
+                SET project_id = ?
+                WHERE task_id IN (SELECT d.id FROM (SELECT DISTINCT descendant_id AS id FROM task_closure WHERE ancestor_id = ?) d)
+                """;
+        return jdbcTemplate.update(sql2, newProjectId, taskId);
     }
 
     public Task getTask(int taskId) {
@@ -83,11 +210,13 @@ public class TaskRepository {
         return jdbcTemplate.query(sql, getTaskStatusRowMapper());
     }
 
-    public void createTask(Task task) {
+    @Transactional
+    public int createTask(Task task) {
         String sql = "INSERT INTO task (parent_task_id, project_id, title, start_date, end_date, description, estimated_hours, status_id) VALUES (?,?,?,?,?,?,?,?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql);
+            PreparedStatement ps = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
 
             //handles parent_task_id, if null means its the parent task
             ps.setObject(1, task.getParentTaskId(), Types.INTEGER);
@@ -123,10 +252,34 @@ public class TaskRepository {
             ps.setInt(8, 1); // status default to 1
 
             return ps;
-        });
+        }, keyHolder);
+        int taskId = keyHolder.getKey().intValue();
+
+        // Closure rows: the task itself, plus every ancestor of the parent one level further away
+        String sql2 = "INSERT INTO task_closure (ancestor_id, descendant_id, depth) VALUES (?,?,0)";
+        jdbcTemplate.update(sql2, taskId, taskId);
+
+        if (task.getParentTaskId() != null) {
+            String sql3 = """
+                    INSERT INTO task_closure (ancestor_id, descendant_id, depth)
+                    SELECT ancestor_id, ?, depth + 1
+                    FROM task_closure
+                    WHERE descendant_id = ?
+                    """;
+            jdbcTemplate.update(sql3, taskId, task.getParentTaskId());
+        }
+
+        return taskId;
     }
 
+    @Transactional
     public void updateTask(Task task) {
+        // Read the current parent, so the closure rows are only rewritten when the task changes parent
+        List<Integer> currentParent = jdbcTemplate.query(
+                "SELECT parent_task_id FROM task WHERE task_id = ?",
+                (rs, rowNum) -> rs.getObject("parent_task_id", Integer.class),
+                task.getTaskId());
+
         String sql = """
                 UPDATE task
                 SET
@@ -152,41 +305,292 @@ public class TaskRepository {
                 task.getStatus().getStatusId(),
                 task.getTaskId()
         );
+
+        if (!currentParent.isEmpty() && !Objects.equals(currentParent.getFirst(), task.getParentTaskId())) {
+            reparentTaskClosure(task.getTaskId(), task.getParentTaskId());
+        }
+    }
+
+    // Moves the closure rows of a subtree below a new parent (null makes the task top-level)
+    private void reparentTaskClosure(int taskId, Integer newParentTaskId) {
+        // Detach the subtree: remove every path from an outside ancestor into the subtree.
+        // The inner DISTINCT forces MySQL to materialize the derived table, which allows reading the table being deleted from.
+        String sql = """
+                DELETE FROM task_closure
+                WHERE descendant_id IN (SELECT d.id FROM (SELECT DISTINCT descendant_id AS id FROM task_closure WHERE ancestor_id = ?) d)
+                  AND ancestor_id NOT IN (SELECT a.id FROM (SELECT DISTINCT descendant_id AS id FROM task_closure WHERE ancestor_id = ?) a)
+                """;
+        jdbcTemplate.update(sql, taskId, taskId);
+
+        // Attach the subtree: connect every ancestor of the new parent to every node in the subtree
+        if (newParentTaskId != null) {
+            String sql2 = """
+                    INSERT INTO task_closure (ancestor_id, descendant_id, depth)
+                    SELECT above.ancestor_id, below.descendant_id, above.depth + below.depth + 1
+                    FROM task_closure above
+                    CROSS JOIN task_closure below
+                    WHERE above.descendant_id = ? AND below.ancestor_id = ?
+                    """;
+            jdbcTemplate.update(sql2, newParentTaskId, taskId);
+        }
     }
 
+    @Transactional
     public int deleteTask(int taskId) {
-        String sql = "DELETE FROM task WHERE task_id = ?";
+        // Remove the closure rows of the whole subtree, subtasks are deleted by the cascade on parent_task_id.
+        // The inner DISTINCT forces MySQL to materialize the derived table, which allows reading the table being deleted from.
+        String sql = """
+                DELETE FROM task_closure
+                WHERE descendant_id IN (SELECT d.id FROM (SELECT DISTINCT descendant_id AS id FROM task_closure WHERE ancestor_id = ?) d)
+                """;
+        jdbcTemplate.update(sql, taskId);
+
+        String sql2 = "DELETE FROM task WHERE task_id = ?";
 
-        return jdbcTemplate.update(sql, taskId);
+        return jdbcTemplate.update(sql2, taskId);
     }
 
-    public List<TimeEntry> getTimeEntriesByTaskId(int taskId) {
-        String sql = """
+    // Number of closure rows that are missing or should not be there, compared to parent_task_id
+    public int countTaskClosureDrift() {
+        String sql = CLOSURE_PATHS_CTE + """
                 SELECT
-                    te.time_entry_id,
-                    te.task_id,
-                    te.user_id,
-                    u.email,
-                    te.hours_worked,
-                    te.description
-                FROM time_entry te
-                JOIN user_account u ON te.user_id = u.user_id
-                WHERE te.task_id = ?""";
+                    (SELECT COUNT(*) FROM paths
+                     WHERE NOT EXISTS (SELECT 1 FROM task_closure tc
+                                       WHERE tc.ancestor_id = paths.ancestor_id
+                                         AND tc.descendant_id = paths.descendant_id
+                                         AND tc.depth = paths.depth))
+                    +
+                    (SELECT COUNT(*) FROM task_closure tc
+                     WHERE NOT EXISTS (SELECT 1 FROM paths
+                                       WHERE tc.ancestor_id = paths.ancestor_id
+                                         AND tc.descendant_id = paths.descendant_id
+                                         AND tc.depth = paths.depth))
+                """;
+        Integer drift = jdbcTemplate.queryForObject(sql, Integer.class);
+        return drift != null ? drift : 0;
+    }
 
-        return jdbcTemplate.query(sql, getTimeEntryRowMapper(), taskId);
+    // Recreates the closure table from parent_task_id. Also used to backfill existing databases.
+    @Transactional
+    public int rebuildTaskClosure() {
+        jdbcTemplate.update("DELETE FROM task_closure");
+
+        String sql = "INSERT INTO task_closure (ancestor_id, descendant_id, depth) "
+                + CLOSURE_PATHS_CTE
+                + "SELECT ancestor_id, descendant_id, depth FROM paths";
+        return jdbcTemplate.update(sql);
+    }
+
+    // One page of a task's entries, newest first, ordered by (work_date, time_entry_id) so the
+    // (task_id, work_date) index serves both the filter and the order.
+    // The page starts after the entry given by beforeDate/beforeId (null for the first page),
+    // and from/to optionally limit the dates. Reads one row more than the page to know if there is a next page.
+    public TimeEntryPage getTimeEntryPage(int taskId, LocalDate from, LocalDate to,
+                                          LocalDate beforeDate, Integer beforeId, int pageSize) {
+        StringBuilder sql = new StringBuilder(BASE_TIME_ENTRY_SQL).append("WHERE te.task_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(taskId);
+
+        if (from != null) {
+            sql.append(" AND te.work_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND te.work_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+        if (beforeDate != null && beforeId != null) {
+            sql.append(" AND (te.work_date < ? OR (te.work_date = ? AND te.time_entry_id < ?))");
+            params.add(Date.valueOf(beforeDate));
+            params.add(Date.valueOf(beforeDate));
+            params.add(beforeId);
+        }
+        sql.append(" ORDER BY te.work_date DESC, te.time_entry_id DESC LIMIT ?");
+        params.add(pageSize + 1);
+
+        List<TimeEntry> entries = jdbcTemplate.query(sql.toString(), getTimeEntryRowMapper(), params.toArray());
+        boolean hasNext = entries.size() > pageSize;
+        return new TimeEntryPage(hasNext ? entries.subList(0, pageSize) : entries, hasNext);
     }
 
+    // The range queries below only read the entries from 'from' to 'to' (both included),
+    // using the (task_id, work_date) and (user_id, work_date) indexes
+    public List<TimeEntry> getTimeEntriesByTaskId(int taskId, LocalDate from, LocalDate to) {
+        String sql = BASE_TIME_ENTRY_SQL + """
+                WHERE te.task_id = ? AND te.work_date BETWEEN ? AND ?
+                ORDER BY te.work_date, te.time_entry_id""";
+
+        return jdbcTemplate.query(sql, getTimeEntryRowMapper(), taskId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    // Entries on every task of the project and its subprojects
+    public List<TimeEntry> getTimeEntriesByProjectSubtree(int projectId, LocalDate from, LocalDate to) {
+        String sql = BASE_TIME_ENTRY_SQL + """
+                JOIN task t ON t.task_id = te.task_id
+                JOIN project_closure pc ON pc.descendant_id = t.project_id
+                WHERE pc.ancestor_id = ? AND te.work_date BETWEEN ? AND ?
+                ORDER BY te.work_date, te.time_entry_id""";
+
+        return jdbcTemplate.query(sql, getTimeEntryRowMapper(), projectId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    // Passes every time entry of the project and its subprojects to the consumer, one row at a time.
+    // The rows are read through a forward-only cursor, so an export of any size never holds the result in memory.
+    public void streamTimeEntriesByProjectSubtree(int projectId, Consumer<TimeEntry> consumer) {
+        String sql = BASE_TIME_ENTRY_SQL + """
+                JOIN task t ON t.task_id = te.task_id
+                JOIN project_closure pc ON pc.descendant_id = t.project_id
+                WHERE pc.ancestor_id = ?
+                ORDER BY te.work_date, te.time_entry_id""";
+
+        RowMapper<TimeEntry> rowMapper = getTimeEntryRowMapper();
+        streamQuery(sql, rs -> consumer.accept(rowMapper.mapRow(rs, 0)), projectId);
+    }
+
+    // Passes every task of the project and its subprojects, with its rollup, to the consumer one row at a time
+    public void streamTasksByProjectSubtree(int projectId, Consumer<Task> consumer) {
+        String sql = BASE_TASK_SQL + """
+                JOIN project_closure pc ON pc.descendant_id = t.project_id
+                WHERE pc.ancestor_id = ?
+                ORDER BY t.project_id, t.task_id""";
+
+        RowMapper<Task> rowMapper = getTaskRowMapper();
+        streamQuery(sql, rs -> consumer.accept(rowMapper.mapRow(rs, 0)), projectId);
+    }
+
+    private void streamQuery(String sql, RowCallbackHandler handler, Object... params) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            return ps;
+        }, handler);
+    }
+
+    public List<TimeEntry> getTimeEntriesByUserId(int userId, LocalDate from, LocalDate to) {
+        String sql = BASE_TIME_ENTRY_SQL + """
+                WHERE te.user_id = ? AND te.work_date BETWEEN ? AND ?
+                ORDER BY te.work_date, te.time_entry_id""";
+
+        return jdbcTemplate.query(sql, getTimeEntryRowMapper(), userId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    // Logged hours per day for every task of the project and its subprojects, from 'from' to 'to' (both included).
+    // Summed by the database in one query, and returned with index 0 being 'from'.
+    public double[] getLoggedHoursPerDay(int projectId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return new double[0];
+        }
+
+        String sql = """
+                SELECT te.work_date, SUM(te.hours_worked) AS hours
+                FROM time_entry te
+                JOIN task t ON t.task_id = te.task_id
+                JOIN project_closure pc ON pc.descendant_id = t.project_id
+                WHERE pc.ancestor_id = ? AND te.work_date BETWEEN ? AND ?
+                GROUP BY te.work_date""";
+
+        long first = from.toEpochDay();
+        double[] hours = new double[(int) (to.toEpochDay() - first + 1)];
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs ->
+                        hours[(int) (rs.getDate("work_date").toLocalDate().toEpochDay() - first)] = rs.getDouble("hours"),
+                projectId, Date.valueOf(from), Date.valueOf(to));
+        return hours;
+    }
+
+    @Transactional
     public void createTimeEntry(TimeEntry newTimeEntry) {
         String sql = """
-                INSERT INTO time_entry (task_id, user_id, hours_worked, description)
-                VALUES (?, ?, ?, ?)
+                INSERT INTO time_entry (task_id, user_id, work_date, hours_worked, description)
+                VALUES (?, ?, ?, ?, ?)
                 """;
 
         jdbcTemplate.update(sql,
                 newTimeEntry.getTaskId(),
                 newTimeEntry.getUserId(),
+                Date.valueOf(newTimeEntry.getWorkDate()),
                 newTimeEntry.getHoursWorked(),
                 newTimeEntry.getDescription());
+
+        addToHoursSummary(newTimeEntry.getTaskId(), newTimeEntry.getHoursWorked(), 1);
+    }
+
+    // Inserts many time entries with JDBC batches, and adds their hours to the summary with one upsert per task.
+    // Call inside a transaction so the entries and the summary stay in step.
+    public void createTimeEntries(List<TimeEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+                INSERT INTO time_entry (task_id, user_id, work_date, hours_worked, description)
+                VALUES (?, ?, ?, ?, ?)
+                """;
+
+        jdbcTemplate.batchUpdate(sql, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getTaskId());
+            ps.setInt(2, entry.getUserId());
+            ps.setDate(3, Date.valueOf(entry.getWorkDate()));
+            ps.setDouble(4, entry.getHoursWorked());
+            ps.setString(5, entry.getDescription());
+        });
+
+        // Sum the batch per task first, so each summary row is only touched once
+        Map<Integer, double[]> totals = new LinkedHashMap<>();
+        for (TimeEntry entry : entries) {
+            double[] total = totals.computeIfAbsent(entry.getTaskId(), id -> new double[2]);
+            total[0] += entry.getHoursWorked();
+            total[1]++;
+        }
+
+        List<Object[]> summaryRows = new ArrayList<>(totals.size());
+        totals.forEach((taskId, total) -> summaryRows.add(new Object[]{taskId, total[0], (int) total[1]}));
+        jdbcTemplate.batchUpdate(ADD_TO_HOURS_SUMMARY_SQL, summaryRows);
+    }
+
+    // Adjusts the logged hours of a task in the same transaction as the time entry change.
+    // Editing or deleting a time entry should call this with the difference (negative for removed hours and entries).
+    private void addToHoursSummary(int taskId, double hours, int entries) {
+        jdbcTemplate.update(ADD_TO_HOURS_SUMMARY_SQL, taskId, hours, entries);
+    }
+
+    // Number of tasks whose summary row does not match the sum of their time entries
+    public int countHoursSummaryDrift() {
+        String sql = """
+                SELECT COUNT(*)
+                FROM task t
+                LEFT JOIN (
+                    SELECT task_id, SUM(hours_worked) AS total_hours, COUNT(*) AS entry_count
+                    FROM time_entry
+                    GROUP BY task_id
+                ) te ON t.task_id = te.task_id
+                LEFT JOIN task_hours_summary ths ON t.task_id = ths.task_id
+                WHERE COALESCE(te.total_hours, 0) <> COALESCE(ths.total_hours, 0)
+                   OR COALESCE(te.entry_count, 0) <> COALESCE(ths.entry_count, 0)
+                """;
+        Integer drift = jdbcTemplate.queryForObject(sql, Integer.class);
+        return drift != null ? drift : 0;
+    }
+
+    // Recreates the summary from time_entry. Also used to backfill existing databases.
+    @Transactional
+    public int rebuildHoursSummary() {
+        jdbcTemplate.update("DELETE FROM task_hours_summary");
+
+        String sql = """
+                INSERT INTO task_hours_summary (task_id, total_hours, entry_count)
+                SELECT task_id, SUM(hours_worked), COUNT(*)
+                FROM time_entry
+                GROUP BY task_id
+                """;
+        return jdbcTemplate.update(sql);
+    }
+
+    // Builds "?,?,?" for an IN clause with the given number of parameters
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
     }
 
     private RowMapper<Task> getTaskRowMapper() {
@@ -194,7 +598,7 @@ public class TaskRepository {
             Date startDate = rs.getDate("start_date");
             Date endDate = rs.getDate("end_date");
 
-            return new Task(
+            Task task = new Task(
                     rs.getInt("task_id"),
                     rs.getObject("parent_task_id", Integer.class),
                     rs.getInt("project_id"),
@@ -210,6 +614,9 @@ public class TaskRepository {
                     ),
                     new ArrayList<>()
             );
+            task.setRollup(new HoursRollup(rs.getDouble("rollup_estimated_hours"), rs.getDouble("rollup_actual_hours")));
+            task.setTimeEntryCount(rs.getInt("time_entry_count"));
+            return task;
         });
     }
 
@@ -226,6 +633,7 @@ public class TaskRepository {
                 rs.getInt("task_id"),
                 rs.getInt("user_id"),
                 rs.getString("email"),
+                rs.getDate("work_date").toLocalDate(),
                 rs.getDouble("hours_worked"),
                 rs.getString("description")
         )
@@ -1,10 +1,14 @@
 package com.example.eksamensprojekt.repository;
 
 import com.example.eksamensprojekt.model.User;
+import com.example.eksamensprojekt.model.UserSummary;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.util.List;
 
 @Repository
@@ -55,17 +59,23 @@ public class UserRepository {
         return (count != null) ? count : 0;
     }
 
-    public void registerUser(User user) {
+    public int registerUser(User user) {
         String sql = "INSERT INTO user_account (email, password_hash, name, title, external) VALUES(?,?,?,?,?)";
-
-        jdbcTemplate.update(
-                sql,
-                user.getEmail(),
-                user.getPasswordHash(),
-                user.getName(),
-                user.getTitle(),
-                user.isExternal()
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+                    ps.setString(1, user.getEmail());
+                    ps.setString(2, user.getPasswordHash());
+                    ps.setString(3, user.getName());
+                    ps.setString(4, user.getTitle());
+                    ps.setBoolean(5, user.isExternal());
+                    return ps;
+                },
+                keyHolder
         );
+
+        return keyHolder.getKey().intValue();
     }
 
     public int updateUser(User updatedUser) {
@@ -99,6 +109,18 @@ public class UserRepository {
         return jdbcTemplate.query(sql, getUserRowMapper());
     }
 
+    // Public fields of every user, for the search index. The password hash is left out on purpose.
+    public List<UserSummary> getUserDirectory() {
+        String sql = "SELECT user_id, email, name, title FROM user_account";
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new UserSummary(
+                rs.getInt("user_id"),
+                rs.getString("email"),
+                rs.getString("name"),
+                rs.getString("title")
+        ));
+    }
+
     private RowMapper<User> getUserRowMapper() {
         return (rs, rowNum) -> new User(
                 rs.getInt("user_id"),
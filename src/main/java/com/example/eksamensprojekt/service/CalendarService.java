@@ -0,0 +1,79 @@
+package com.example.eksamensprojekt.service;
+
+import com.example.eksamensprojekt.exceptions.DatabaseOperationException;
+import com.example.eksamensprojekt.repository.HolidayRepository;
+import com.example.eksamensprojekt.utils.DateUtil;
+import com.example.eksamensprojekt.utils.WorkingDayCalendar;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class CalendarService {
+    private static final Logger log = LoggerFactory.getLogger(CalendarService.class);
+
+    private final HolidayRepository holidayRepository;
+
+    // Bumped on every reload, so results computed with an older calendar can be told apart
+    private final AtomicLong calendarVersion = new AtomicLong();
+
+    // Optional file with extra closure days, one ISO date per line
+    private final String holidaysFile;
+
+    public CalendarService(HolidayRepository holidayRepository,
+                           @Value("${calendar.holidays-file:}") String holidaysFile) {
+        this.holidayRepository = holidayRepository;
+        this.holidaysFile = holidaysFile;
+    }
+
+    // Loads the calendar before the service is handed out, so business days never start out counting weekends only.
+    // A failure is logged and the weekends-only calendar kept, so a missing holidays file doesn't stop the application.
+    @PostConstruct
+    void loadCalendar() {
+        try {
+            int closedDays = reloadCalendar();
+            log.info("Loaded working day calendar with {} holidays and closure days", closedDays);
+        } catch (DatabaseOperationException | UncheckedIOException e) {
+            log.error("Loading the working day calendar failed, using weekends only", e);
+        }
+    }
+
+    // Loads the holidays from the holiday table and the holidays file (if set),
+    // and makes them the calendar used for business days and hour distribution.
+    // Returns the number of closed days loaded.
+    public int reloadCalendar() {
+        List<LocalDate> closedDays;
+        try {
+            closedDays = new ArrayList<>(holidayRepository.getHolidayDates());
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to retrieve holidays", e);
+        }
+
+        if (!holidaysFile.isBlank()) {
+            try {
+                closedDays.addAll(WorkingDayCalendar.readDates(Path.of(holidaysFile)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read holidays file " + holidaysFile, e);
+            }
+        }
+
+        DateUtil.setCalendar(new WorkingDayCalendar(closedDays));
+        calendarVersion.incrementAndGet();
+        return closedDays.size();
+    }
+
+    public long getCalendarVersion() {
+        return calendarVersion.get();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.eksamensprojekt.service;
+
+import com.example.eksamensprojekt.exceptions.DatabaseOperationException;
+import com.example.eksamensprojekt.repository.TaskRepository;
+import com.example.eksamensprojekt.utils.CsvUtil;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+// CSV exports of a project and its subprojects.
+// Rows go from the database cursor straight to the writer, so memory use is the same for ten rows or millions.
+@Service
+public class ExportService {
+    private final TaskRepository taskRepository;
+
+    public ExportService(TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    // The columns match the time entry import, so an export can be imported again.
+    // Line breaks in descriptions stay inside quoted fields, which the import reads across lines.
+    public void writeTimeEntriesCsv(int projectId, Writer out) {
+        try {
+            out.write(CsvUtil.formatLine("time_entry_id", "task_id", "user_id", "user_email", "work_date", "hours_worked", "description"));
+            taskRepository.streamTimeEntriesByProjectSubtree(projectId, entry -> writeLine(out, CsvUtil.formatLine(
+                    entry.getTimeEntryId(),
+                    entry.getTaskId(),
+                    entry.getUserId(),
+                    entry.getUserEmail(),
+                    entry.getWorkDate(),
+                    entry.getHoursWorked(),
+                    entry.getDescription())));
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write time entry export", e);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to export time entries for project with id " + projectId, e);
+        }
+    }
+
+    // One row per task, with its own hours and the totals including its subtasks
+    public void writeTasksCsv(int projectId, Writer out) {
+        try {
+            out.write(CsvUtil.formatLine("task_id", "parent_task_id", "project_id", "title", "status", "start_date", "end_date",
+                    "estimated_hours", "actual_hours", "rollup_estimated_hours", "rollup_actual_hours"));
+            taskRepository.streamTasksByProjectSubtree(projectId, task -> writeLine(out, CsvUtil.formatLine(
+                    task.getTaskId(),
+                    task.getParentTaskId(),
+                    task.getProjectId(),
+                    task.getTitle(),
+                    task.getStatus().getStatusName(),
+                    task.getStartDate(),
+                    task.getEndDate(),
+                    task.getEstimatedHours(),
+                    task.getActualHours(),
+                    task.getRollup().getEstimatedHours(),
+                    task.getRollup().getActualHours())));
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write task export", e);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to export tasks for project with id " + projectId, e);
+        }
+    }
+
+    private static void writeLine(Writer out, String line) {
+        try {
+            out.write(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.eksamensprojekt.service;
+
+import com.example.eksamensprojekt.exceptions.DatabaseOperationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+
+// Keeps the derived tables (closure tables, summaries) in line with the source data, and reloads the holiday calendar.
+// The derived tables are checked once on startup, which also backfills databases created before a table existed,
+// and again every night. The calendar is loaded by CalendarService itself and only reloaded here.
+// Not active in tests, where the schema is created per test by h2init.sql.
+@Component
+@Profile("!test")
+public class MaintenanceJob {
+    private static final Logger log = LoggerFactory.getLogger(MaintenanceJob.class);
+
+    private final ProjectService projectService;
+    private final TaskService taskService;
+    private final CalendarService calendarService;
+
+    public MaintenanceJob(ProjectService projectService, TaskService taskService, CalendarService calendarService) {
+        this.projectService = projectService;
+        this.taskService = taskService;
+        this.calendarService = calendarService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        verifyDerivedData();
+    }
+
+    @Scheduled(cron = "0 30 2 * * *")
+    public void reloadCalendar() {
+        try {
+            int closedDays = calendarService.reloadCalendar();
+            log.info("Loaded working day calendar with {} holidays and closure days", closedDays);
+        } catch (DatabaseOperationException | UncheckedIOException e) {
+            log.error("Loading the working day calendar failed, keeping the current calendar", e);
+        }
+    }
+
+    @Scheduled(cron = "0 0 3 * * *")
+    public void verifyDerivedData() {
+        try {
+            int projectClosureDrift = projectService.verifyProjectClosure();
+            if (projectClosureDrift > 0) {
+                log.warn("Rebuilt project_closure, {} rows were out of date", projectClosureDrift);
+            }
+
+            int taskClosureDrift = taskService.verifyTaskClosure();
+            if (taskClosureDrift > 0) {
+                log.warn("Rebuilt task_closure, {} rows were out of date", taskClosureDrift);
+            }
+
+            int hoursSummaryDrift = taskService.verifyHoursSummary();
+            if (hoursSummaryDrift > 0) {
+                log.warn("Rebuilt task_hours_summary, {} tasks were out of date", hoursSummaryDrift);
+            }
+
+            // Runs after the summary, since the rollups are computed from it
+            int rollupDrift = taskService.verifyRollups();
+            if (rollupDrift > 0) {
+                log.warn("Rebuilt task_rollup and project_rollup, {} rows were out of date", rollupDrift);
+            }
+        } catch (DatabaseOperationException e) {
+            log.error("Verification of derived data failed", e);
+        }
+
+        log.info("Permission cache: {}", projectService.getPermissionCacheStats());
+        log.info("Hour distribution cache: {}", projectService.getDistributionCacheStats());
+        log.info("Time entry write buffer: {}", taskService.getTimeEntryBufferStats());
+    }
+}
@@ -2,28 +2,56 @@ package com.example.eksamensprojekt.service;
 
 import com.example.eksamensprojekt.exceptions.ProjectNotFoundException;
 import com.example.eksamensprojekt.exceptions.DatabaseOperationException;
+import com.example.eksamensprojekt.model.EffectivePermission;
 import com.example.eksamensprojekt.model.Project;
+import com.example.eksamensprojekt.model.ProjectMember;
 import com.example.eksamensprojekt.model.ProjectRole;
 import com.example.eksamensprojekt.model.Task;
 import com.example.eksamensprojekt.model.User;
 import com.example.eksamensprojekt.repository.ProjectRepository;
+import com.example.eksamensprojekt.repository.RollupRepository;
+import com.example.eksamensprojekt.utils.ExpiringLruCache;
+import com.example.eksamensprojekt.utils.HourDistribution;
+import com.example.eksamensprojekt.utils.HourSeries;
+import com.example.eksamensprojekt.utils.TimeBucket;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class ProjectService {
 
+    // Permissions change rarely, so a short time to live keeps checks out of the database
+    // while bounding how long a change made on another instance can go unseen
+    private static final int PERMISSION_CACHE_SIZE = 10_000;
+    private static final Duration PERMISSION_CACHE_TTL = Duration.ofMinutes(5);
+
+    // Distributions are keyed by subtree, hours and calendar version, so old entries are never read again and just age out
+    private static final int DISTRIBUTION_CACHE_SIZE = 500;
+    private static final Duration DISTRIBUTION_CACHE_TTL = Duration.ofHours(1);
+
     private final ProjectRepository projectRepository;
+    private final RollupRepository rollupRepository;
     private final TaskService taskService;
     private final UserService userService;
-
-    public ProjectService(ProjectRepository projectRepository, TaskService taskService, UserService userService) {
+    private final CalendarService calendarService;
+    private final ExpiringLruCache<PermissionKey, EffectivePermission> permissionCache =
+            new ExpiringLruCache<>(PERMISSION_CACHE_SIZE, PERMISSION_CACHE_TTL);
+    private final ExpiringLruCache<DistributionKey, HourSeries> distributionCache =
+            new ExpiringLruCache<>(DISTRIBUTION_CACHE_SIZE, DISTRIBUTION_CACHE_TTL);
+
+    public ProjectService(ProjectRepository projectRepository, RollupRepository rollupRepository,
+                          TaskService taskService, UserService userService, CalendarService calendarService) {
         this.projectRepository = projectRepository;
+        this.rollupRepository = rollupRepository;
         this.taskService = taskService;
         this.userService = userService;
+        this.calendarService = calendarService;
     }
 
     // ===========PROJECT ===========
@@ -33,6 +61,12 @@ public class ProjectService {
             int projectId = projectRepository.createProject(project);
             project.setProjectId(projectId);
 
+            // The id may have been checked before the project existed
+            invalidatePermissionsForProjects(List.of(projectId));
+            // An empty project still needs its zero rollup row, or the maintenance check counts it as drift
+            rollupRepository.refreshProjectRollups(List.of(projectId));
+            projectRepository.bumpSubtreeVersions(List.of(projectId));
+
             return projectId;
 
         } catch (DataAccessException e) {
@@ -53,14 +87,16 @@ public class ProjectService {
         try {
             List<Project> projects = projectRepository.getAssignedProjectsByUserId(userId);
 
-            // Build a set of all assigned project IDs for fast lookup
-            Set<Integer> projectIds = projects.stream()
-                    .map(Project::getProjectId)
+            // Check the parents of all assigned projects at once
+            Set<Integer> parentIds = projects.stream()
+                    .map(Project::getParentProjectId)
+                    .filter(Objects::nonNull)
                     .collect(Collectors.toSet());
+            Set<Integer> accessibleParentIds = getAccessibleProjects(parentIds, userId).keySet();
 
-            // Filter out projects whose parent is also assigned
+            // Filter out projects that are already reachable through their parent
             return projects.stream()
-                    .filter(p -> p.getParentProjectId() == null || !projectIds.contains(p.getParentProjectId()))
+                    .filter(p -> p.getParentProjectId() == null || !accessibleParentIds.contains(p.getParentProjectId()))
                     .toList();
 
         } catch (DataAccessException e) {
@@ -86,19 +122,35 @@ public class ProjectService {
 
     public Project getProjectWithTree(int projectId) {
         try {
-            // Retrieve project with id
-            Project project = projectRepository.getProject(projectId);
+            // Retrieve the project and every descendant in one query
+            List<Project> subtree = projectRepository.getProjectSubtree(projectId);
+
+            // Index projects by id, so parents can be found in constant time
+            Map<Integer, Project> projectsById = new LinkedHashMap<>();
+            for (Project p : subtree) {
+                projectsById.put(p.getProjectId(), p);
+            }
 
             // throw error if the project is not found
+            Project project = projectsById.get(projectId);
             if (project == null) {
                 throw new ProjectNotFoundException(projectId);
             }
 
-            // Load project tree setting subprojects and subtasks
-            // To prevent infinite recursion, a set is added to track visited projects
-            Set<Integer> visitedProjects = new HashSet<>();
+            // Link every subproject to its parent in a single pass.
+            // The root is skipped, so its own parent is never attached.
+            for (Project p : subtree) {
+                Project parent = p.getParentProjectId() != null ? projectsById.get(p.getParentProjectId()) : null;
+                if (p != project && parent != null) {
+                    parent.addSubProject(p);
+                }
+            }
 
-            loadProjectTree(project, visitedProjects);
+            // Load the tasks of the whole subtree at once and hand each project its top-level tasks
+            Map<Integer, List<Task>> tasksByProject = taskService.getProjectTaskForests(projectsById.keySet());
+            for (Project p : subtree) {
+                p.setTasks(tasksByProject.getOrDefault(p.getProjectId(), new ArrayList<>()));
+            }
 
             return project;
         } catch (DataAccessException e) {
@@ -106,259 +158,290 @@ public class ProjectService {
         }
     }
 
-    private void loadProjectTree(Project project, Set<Integer> visitedProjects) {
-
-        // Prevent endless recursion by tracking visited project Ids.
-        // visitedProjects.add(...) returns false if the ID was already added,
-        // meaning we've already processed this project, so we stop recursing.
-        if (!visitedProjects.add(project.getProjectId())) {
-            return;
-        }
-
-        try {
-            // Load direct subprojects
-            List<Project> subProjects = projectRepository.getDirectSubProjects(project.getProjectId());
-            project.setSubProjects(subProjects);
-
-            // For each subproject, load its subprojects and tasks using recursion
-            // Base case implicit: when subProjects is empty loop will not run
-            for (Project sub : subProjects) {
-                loadProjectTree(sub, visitedProjects);
-            }
-        } catch (DataAccessException e) {
-            throw new DatabaseOperationException("Failed to retrieve subprojects with parent id=" + project.getProjectId(), e);
-        }
-
-        // Load project tasks with subtasks
-        List<Task> tasks = taskService.getProjectTasksWithSubtasks(project.getProjectId());
-        project.setTasks(tasks);
-    }
-
     public boolean updateProject(Project updatedProject) {
         try {
             int rowsAffected = projectRepository.updateProject(updatedProject);
             if (rowsAffected == 0) throw new ProjectNotFoundException(updatedProject.getProjectId());
+            projectRepository.bumpSubtreeVersions(List.of(updatedProject.getProjectId()));
             return true; // project updated
         } catch (DataAccessException e) {
             throw new DatabaseOperationException("Failed to update project", e);
         }
     }
 
+    @Transactional
     public void deleteProject(int projectId) {
         try {
-            int rowsAffected = projectRepository.deleteProject(projectId);
-            if (rowsAffected == 0) throw new ProjectNotFoundException(projectId);
-            //project deleted if at least 1 row is affected
+            Project before = projectRepository.getProject(projectId);
+            if (before == null) throw new ProjectNotFoundException(projectId);
+
+            List<Integer> subtreeIds = projectRepository.getSubtreeProjectIds(projectId);
+            projectRepository.deleteProject(projectId);
+            invalidatePermissionsForProjects(subtreeIds);
+
+            // The ancestors no longer include the deleted subtree's hours
+            rollupRepository.refreshProjectRollups(Collections.singletonList(before.getParentProjectId()));
+            projectRepository.bumpSubtreeVersions(Collections.singletonList(before.getParentProjectId()));
         } catch (DataAccessException e) {
             throw new DatabaseOperationException("Failed to delete project", e);
         }
     }
 
-    public List<Project> getValidMoveTargets(int currentProjectId) {
+    // Moves a project and its subprojects below a new parent (null moves it to the top level)
+    @Transactional
+    public void moveProject(int projectId, Integer newParentProjectId) {
         try {
-            //Empty list
-            List<Project> targets = new ArrayList<>();
-            //Get current project
-            Project currentProject = projectRepository.getProject(currentProjectId);
-            //Add parent project if it exsits
-            Integer parentProjectId = currentProject.getParentProjectId();
-            if (parentProjectId != null) {
-                Project parent = projectRepository.getProject(parentProjectId);
-                if (parent != null) {
-                    targets.add(parent);
-                }
-                //add sibling projects
-                List<Project> siblings = projectRepository.getDirectSubProjects(parentProjectId);
-                for (Project sibling : siblings) {
-                    if (sibling.getProjectId() != currentProjectId) {
-                        targets.add(sibling);
-                    }
-                }
+            // The new parent can't be the project itself or one of its subprojects
+            if (newParentProjectId != null && projectRepository.isDescendantOf(newParentProjectId, projectId)) {
+                throw new IllegalArgumentException("Project " + projectId + " can't be moved below its own subproject " + newParentProjectId);
             }
-            //add direct children (subprojects of current project)
-            List<Project> children = projectRepository.getDirectSubProjects(currentProjectId);
-            targets.addAll(children);
-            return targets;
+
+            Project before = projectRepository.getProject(projectId);
+            if (before == null) throw new ProjectNotFoundException(projectId);
+
+            projectRepository.moveProject(projectId, newParentProjectId);
+
+            // Hours move from the old ancestors to the new ones
+            rollupRepository.refreshProjectRollups(Arrays.asList(before.getParentProjectId(), projectId));
+            projectRepository.bumpSubtreeVersions(Arrays.asList(before.getParentProjectId(), projectId));
+
+            // Inherited roles of the whole subtree now come from the new ancestors
+            invalidatePermissionsForProjects(projectRepository.getSubtreeProjectIds(projectId));
         } catch (DataAccessException e) {
-            throw new DatabaseOperationException("Failed to retrieve valid move targets for project with id=" + currentProjectId, e);
+            throw new DatabaseOperationException("Failed to move project with id=" + projectId, e);
         }
     }
 
-    // ===========ACCESS AND ROLES===========
-    public boolean hasAccessToProject(int projectId, int userId) {
+    // Estimated and logged hours of the project per bucket.
+    // Without a window, the series covers the project dates and every task in it.
+    // Windows longer than the bucket's maximum are shortened.
+    // Served from memory until something below the project changes. Task and project changes bump the subtree version,
+    // and logged time bumps the hours version of its own project, which is summed over the subtree for the key.
+    // A reloaded holiday calendar bumps the calendar version.
+    public HourSeries getHourSeries(Project project, TimeBucket bucket, LocalDate from, LocalDate to) {
+        long hoursVersion;
         try {
-            return hasAccessRecursive(projectId, userId);
+            hoursVersion = projectRepository.getSubtreeHoursVersion(project.getProjectId());
         } catch (DataAccessException e) {
-            throw new DatabaseOperationException("Failed to verify project access", e);
+            throw new DatabaseOperationException("Failed to retrieve hours version of project with id=" + project.getProjectId(), e);
         }
-    }
 
-    private boolean hasAccessRecursive(int projectId, int userId) {
-        Project project = projectRepository.getProject(projectId);
-        if (project == null) {
-            return false;
-        }
+        DistributionKey key = new DistributionKey(project.getProjectId(), project.getSubtreeVersion(), hoursVersion,
+                calendarService.getCalendarVersion(), bucket, from, to);
+        HourSeries series = distributionCache.get(key);
+        if (series == null) {
+            Project tree = getProjectWithTree(project.getProjectId());
+            HourDistribution distribution = tree.getHourDistribution();
+
+            LocalDate windowStart = from;
+            if (windowStart == null) {
+                LocalDate firstTaskDay = distribution.getFirstDay();
+                windowStart = firstTaskDay != null && firstTaskDay.isBefore(tree.getStartDate()) ? firstTaskDay : tree.getStartDate();
+            }
+            LocalDate windowEnd = to;
+            if (windowEnd == null) {
+                LocalDate lastTaskDay = distribution.getLastDay();
+                windowEnd = lastTaskDay != null && lastTaskDay.isAfter(tree.getEndDate()) ? lastTaskDay : tree.getEndDate();
+            }
 
-        // Direct access?
-        if (project.getOwnerId() == userId ||
-                projectRepository.isUserAssignedToProject(projectId, userId)) {
-            return true;
-        }
+            // Cut the window down to the longest one of the bucket, keeping the end if only that was asked for
+            if (windowEnd.isAfter(bucket.maxWindowEnd(windowStart))) {
+                if (from == null && to != null) {
+                    windowStart = bucket.maxWindowStart(windowEnd);
+                } else {
+                    windowEnd = bucket.maxWindowEnd(windowStart);
+                }
+            }
 
-        // No parent?
-        if (project.getParentProjectId() == null) {
-            return false;
+            double[] loggedHours = taskService.getLoggedHoursPerDay(project.getProjectId(), windowStart, windowEnd);
+            series = distribution.toSeries(bucket, windowStart, windowEnd, loggedHours);
+            distributionCache.put(key, series);
         }
+        return series;
+    }
 
-        // Check parent access recursively
-        return hasAccessRecursive(project.getParentProjectId(), userId);
+    public String getDistributionCacheStats() {
+        return distributionCache.toString();
     }
 
-    public void addUserToProject(int projectId, String email, String role) {
+    // Compares the closure table with parent_project_id and rebuilds it if they disagree.
+    // Returns the number of rows that were out of date.
+    public int verifyProjectClosure() {
         try {
-            int userId = userService.getUserByEmail(email).getUserId();
-            projectRepository.addUserToProject(projectId, userId, role);
+            int drift = projectRepository.countProjectClosureDrift();
+            if (drift > 0) {
+                projectRepository.rebuildProjectClosure();
+            }
+            return drift;
         } catch (DataAccessException e) {
-            throw new DatabaseOperationException("Failed to add user to project", e);
+            throw new DatabaseOperationException("Failed to verify project closure", e);
         }
     }
 
-    public void updateUserRole(int projectId, int userId, String role) {
+    // Parent, siblings and direct children the user has access to
+    public List<Project> getValidMoveTargets(int currentProjectId, int userId) {
+        List<Project> moveTargets;
         try {
-            projectRepository.updateUserRole(projectId, userId, role);
+            moveTargets = projectRepository.getMoveTargets(currentProjectId);
         } catch (DataAccessException e) {
-            throw new DatabaseOperationException("Failed to update user's project role", e);
+            throw new DatabaseOperationException("Failed to retrieve valid move targets for project with id=" + currentProjectId, e);
         }
+
+        // Check access to all candidates together
+        Set<Integer> accessibleIds = getAccessibleProjects(
+                moveTargets.stream().map(Project::getProjectId).toList(), userId).keySet();
+
+        return moveTargets.stream()
+                .filter(p -> accessibleIds.contains(p.getProjectId()))
+                .toList();
     }
 
-    public void removeUserFromProject(int projectId, int userId) {
-        try {
-            projectRepository.removeUserFromProject(projectId, userId);
-        } catch (DataAccessException e) {
-            throw new DatabaseOperationException("Failed to remove user from project", e);
+    // Where a subproject can be moved: up to its grandparent, or down into a sibling, if the user has access.
+    // The project's own subprojects are left out, since a project can't be moved below itself.
+    public List<Project> getProjectMoveTargets(Project project, int userId) {
+        Integer parentId = project.getParentProjectId();
+        if (parentId == null) {
+            return List.of();
         }
-    }
 
-    public ProjectRole getUserRole(int projectId, int userId) {
-        try {
-            // 1. Check direct role
-            ProjectRole directRole = projectRepository.getProjectUserRole(projectId, userId);
-            if (directRole != null) {
-                return directRole;
-            }
+        List<Project> targets = new ArrayList<>();
+        Project parent = getProject(parentId);
+        if (parent.getParentProjectId() != null && hasAccessToProject(parent.getParentProjectId(), userId)) {
+            targets.add(getProject(parent.getParentProjectId()));
+        }
+        getValidMoveTargets(project.getProjectId(), userId).stream()
+                .filter(p -> parentId.equals(p.getParentProjectId()))
+                .forEach(targets::add);
+        return targets;
+    }
 
-            // 2. Otherwise, check for an inherited role
-            return getInheritedRole(projectId, userId);
+    // ===========ACCESS AND ROLES===========
+    // Access and role of the user, resolved against the project and all of its ancestors in one query.
+    // Results are cached per user and project until a membership or the hierarchy changes.
+    public EffectivePermission getEffectivePermission(int projectId, int userId) {
+        PermissionKey key = new PermissionKey(userId, projectId);
+        EffectivePermission cached = permissionCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
 
+        try {
+            EffectivePermission permission = projectRepository.getEffectivePermission(projectId, userId);
+            permissionCache.put(key, permission);
+            return permission;
         } catch (DataAccessException e) {
             throw new DatabaseOperationException(
-                    "Failed to retrieve user role for projectId=" + projectId + " and userId=" + userId,
-                    e
+                    "Failed to resolve permissions for projectId=" + projectId + " and userId=" + userId, e
             );
         }
     }
 
-    public List<User> getDirectProjectUsers(int projectId) {
-        return userService.getUsersByProjectId(projectId);
-    }
-
-    public List<User> getInheritedProjectUsers(int projectId) {
-        Set<Integer> seenUsers = new HashSet<>();
-        List<User> inheritedUsers = new ArrayList<>();
-
-        // Add direct users to seenUsers so they are skipped in inheritance
-        List<User> directUsers = userService.getUsersByProjectId(projectId);
-        for (User user : directUsers) {
-            seenUsers.add(user.getUserId());
+    // Returns the projects among projectIds the user has access to, with their effective roles, keyed by project id.
+    // Cached projects are answered from memory, the rest are resolved together in one query.
+    public Map<Integer, EffectivePermission> getAccessibleProjects(Collection<Integer> projectIds, int userId) {
+        Map<Integer, EffectivePermission> accessible = new LinkedHashMap<>();
+        Set<Integer> uncached = new LinkedHashSet<>();
+
+        for (int projectId : projectIds) {
+            EffectivePermission cached = permissionCache.get(new PermissionKey(userId, projectId));
+            if (cached == null) {
+                uncached.add(projectId);
+            } else if (cached.hasAccess()) {
+                accessible.put(projectId, cached);
+            }
         }
 
-        collectInheritedProjectUsers(projectId, seenUsers, inheritedUsers);
-
-        return inheritedUsers;
-    }
-
-    private void collectInheritedProjectUsers(int projectId, Set<Integer> seenUsers, List<User> result) {
-        Project project = projectRepository.getProject(projectId);
-        if (project == null || project.getParentProjectId() == null) {
-            return; // no more ancestors
+        if (uncached.isEmpty()) {
+            return accessible;
         }
 
-        int parentId = project.getParentProjectId();
-
-        // Add users from parent who are not in seenUsers
-        for (User user : getDirectProjectUsers(parentId)) {
-            if (seenUsers.add(user.getUserId())) {
-                result.add(user);
+        try {
+            Map<Integer, EffectivePermission> loaded = projectRepository.getEffectivePermissions(uncached, userId);
+            for (int projectId : uncached) {
+                EffectivePermission permission = loaded.getOrDefault(projectId, EffectivePermission.noAccess(projectId, userId));
+                permissionCache.put(new PermissionKey(userId, projectId), permission);
+                if (permission.hasAccess()) {
+                    accessible.put(projectId, permission);
+                }
             }
+            return accessible;
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to resolve permissions for userId=" + userId, e);
         }
-
-        // Recurse upward
-        collectInheritedProjectUsers(parentId, seenUsers, result);
     }
 
-    public Map<User, ProjectRole> getProjectUsersWithDirectRoles(int projectId) {
+    // Which of the users have access to which of the projects, resolved together in one query.
+    // Used when one user logs time for others, e.g. in an import.
+    public Map<Integer, Set<Integer>> getUsersWithAccess(Collection<Integer> projectIds, Collection<Integer> userIds) {
         try {
-            Map<User, ProjectRole> result = new HashMap<>();
-
-            List<User> projectUsers = getDirectProjectUsers(projectId);
-
-            for (User user : projectUsers) {
-                ProjectRole directRole = projectRepository.getProjectUserRole(projectId, user.getUserId());
-                if (directRole != null) {
-                    result.put(user, directRole);
-                }
-            }
+            return projectRepository.getUsersWithAccess(projectIds, userIds);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to resolve project access for users", e);
+        }
+    }
 
-            return result;
+    public boolean hasAccessToProject(int projectId, int userId) {
+        return getEffectivePermission(projectId, userId).hasAccess();
+    }
 
+    public void addUserToProject(int projectId, String email, String role) {
+        try {
+            int userId = userService.getUserByEmail(email).getUserId();
+            projectRepository.addUserToProject(projectId, userId, role);
+            invalidatePermissionsForUser(userId);
         } catch (DataAccessException e) {
-            throw new DatabaseOperationException(
-                    "Failed to retrieve direct roles for projectId=" + projectId, e
-            );
+            throw new DatabaseOperationException("Failed to add user to project", e);
         }
     }
 
-    public Map<User, ProjectRole> getProjectUsersWithInheritedRoles(int projectId) {
+    public void updateUserRole(int projectId, int userId, String role) {
         try {
-            Map<User, ProjectRole> result = new HashMap<>();
+            projectRepository.updateUserRole(projectId, userId, role);
+            invalidatePermissionsForUser(userId);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to update user's project role", e);
+        }
+    }
 
-            // 1. Get all users from ancestors, skipping direct users
-            List<User> inheritedUsers = getInheritedProjectUsers(projectId);
+    public void removeUserFromProject(int projectId, int userId) {
+        try {
+            projectRepository.removeUserFromProject(projectId, userId);
+            invalidatePermissionsForUser(userId);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to remove user from project", e);
+        }
+    }
 
-            // 2. Resolve inherited roles for each user
-            for (User user : inheritedUsers) {
-                int userId = user.getUserId();
-                ProjectRole inheritedRole = getInheritedRole(projectId, userId);
-                if (inheritedRole != null) {
-                    result.put(user, inheritedRole);
-                }
-            }
+    // A membership change affects the user on the project and every subproject, so all of the user's entries are dropped
+    private void invalidatePermissionsForUser(int userId) {
+        permissionCache.invalidateIf(key -> key.userId() == userId);
+    }
 
-            return result;
+    private void invalidatePermissionsForProjects(Collection<Integer> projectIds) {
+        Set<Integer> ids = new HashSet<>(projectIds);
+        permissionCache.invalidateIf(key -> ids.contains(key.projectId()));
+    }
 
-        } catch (DataAccessException e) {
-            throw new DatabaseOperationException(
-                    "Failed to retrieve inherited roles for projectId=" + projectId, e
-            );
-        }
+    public String getPermissionCacheStats() {
+        return permissionCache.toString();
     }
 
-    private ProjectRole getInheritedRole(int projectId, int userId) {
-        Project project = projectRepository.getProject(projectId);
-        if (project == null || project.getParentProjectId() == null) {
-            return null;
-        }
+    public ProjectRole getUserRole(int projectId, int userId) {
+        // Direct role, or else the role on the nearest ancestor
+        return getEffectivePermission(projectId, userId).getRole();
+    }
 
-        int parentId = project.getParentProjectId();
+    public List<User> getDirectProjectUsers(int projectId) {
+        return userService.getUsersByProjectId(projectId);
+    }
 
-        // direct role on parent?
-        ProjectRole parentRole = projectRepository.getProjectUserRole(parentId, userId);
-        if (parentRole != null) {
-            return parentRole;
+    // Direct and inherited members with their roles, loaded in one query
+    public List<ProjectMember> getProjectRoster(int projectId) {
+        try {
+            return projectRepository.getProjectRoster(projectId);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to retrieve team for projectId=" + projectId, e);
         }
-
-        // continue up
-        return getInheritedRole(parentId, userId);
     }
 
     public List<ProjectRole> getAllProjectRoles() {
@@ -368,4 +451,11 @@ public class ProjectService {
             throw new DatabaseOperationException("Failed to retrieve projectRoles", e);
         }
     }
-}
\ No newline at end of file
+
+    private record DistributionKey(int projectId, long subtreeVersion, long hoursVersion, long calendarVersion,
+                                   TimeBucket bucket, LocalDate from, LocalDate to) {
+    }
+
+    private record PermissionKey(int userId, int projectId) {
+    }
+}
@@ -5,37 +5,106 @@ import com.example.eksamensprojekt.exceptions.TaskNotFoundException;
 import com.example.eksamensprojekt.model.Task;
 import com.example.eksamensprojekt.model.TaskStatus;
 import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.model.TimeEntryPage;
+import com.example.eksamensprojekt.repository.ProjectRepository;
+import com.example.eksamensprojekt.repository.RollupRepository;
 import com.example.eksamensprojekt.repository.TaskRepository;
+import com.example.eksamensprojekt.utils.WriteBehindBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
-
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class TaskService {
-    private final TaskRepository taskRepository;
+    // How long a request waits for its queued entry to be written
+    private static final Duration TIME_ENTRY_WRITE_TIMEOUT = Duration.ofSeconds(30);
 
-    public TaskService(TaskRepository taskRepository) {
+    private final TaskRepository taskRepository;
+    private final RollupRepository rollupRepository;
+    private final ProjectRepository projectRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Queues single time entries and writes them in batches, so concurrent users at month end do not
+    // each lock the same summary and rollup rows. Null unless time-entries.write-behind.enabled is true.
+    private WriteBehindBuffer<TimeEntry> timeEntryBuffer;
+
+    private final boolean writeBehind;
+    private final int bufferCapacity;
+    private final int bufferBatchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+
+    public TaskService(TaskRepository taskRepository, RollupRepository rollupRepository, ProjectRepository projectRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${time-entries.write-behind.enabled:false}") boolean writeBehind,
+                       @Value("${time-entries.write-behind.capacity:10000}") int bufferCapacity,
+                       @Value("${time-entries.write-behind.batch-size:500}") int bufferBatchSize,
+                       @Value("${time-entries.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+                       @Value("${time-entries.write-behind.offer-timeout-ms:2000}") long offerTimeoutMs) {
         this.taskRepository = taskRepository;
+        this.rollupRepository = rollupRepository;
+        this.projectRepository = projectRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.writeBehind = writeBehind;
+        this.bufferCapacity = bufferCapacity;
+        this.bufferBatchSize = bufferBatchSize;
+        this.flushInterval = Duration.ofMillis(flushIntervalMs);
+        this.offerTimeout = Duration.ofMillis(offerTimeoutMs);
+    }
+
+    // The buffer's writer thread calls back into this service, so it is started once the service is fully built
+    @PostConstruct
+    public void startTimeEntryBuffer() {
+        if (writeBehind) {
+            timeEntryBuffer = new WriteBehindBuffer<>("time-entry-writer", bufferCapacity, bufferBatchSize,
+                    flushInterval, offerTimeout, this::writeTimeEntryBatch);
+        }
+    }
+
+    // Writes what is still queued before the application stops
+    @PreDestroy
+    public void drainTimeEntryBuffer() {
+        if (timeEntryBuffer != null) {
+            timeEntryBuffer.close();
+        }
     }
 
     public List<Task> getProjectTasksWithSubtasks(int projectId) {
+        return getProjectTaskForests(List.of(projectId)).getOrDefault(projectId, new ArrayList<>());
+    }
+
+    // Loads the task trees of several projects at once.
+    // Returns the top-level tasks of each project, keyed by project id, with subtasks linked.
+    public Map<Integer, List<Task>> getProjectTaskForests(Collection<Integer> projectIds) {
         try {
-            // Load direct project tasks
-            List<Task> tasks = taskRepository.getDirectProjectTasks(projectId);
+            // Load every task of the projects in a single query
+            List<Task> tasks = taskRepository.getTasksByProjectIds(projectIds);
+            linkTaskForest(tasks, null);
 
-            // For each task, load project tree
-            // To prevent infinite recursion a set is added to track visited tasks
-            Set<Integer> visitedTasks = new HashSet<>();
+            // Group the top-level tasks by project
+            Map<Integer, List<Task>> tasksByProject = new HashMap<>();
             for (Task task : tasks) {
-                loadTaskTree(task, visitedTasks);
+                if (task.getParentTaskId() == null) {
+                    tasksByProject.computeIfAbsent(task.getProjectId(), id -> new ArrayList<>()).add(task);
+                }
             }
 
-            return tasks;
+            return tasksByProject;
         } catch (DataAccessException e) {
-            throw new DatabaseOperationException("failed to retrieve tasks for project with id " + projectId, e);
+            throw new DatabaseOperationException("failed to retrieve tasks for projects with ids " + projectIds, e);
         }
     }
 
@@ -55,15 +124,15 @@ public class TaskService {
 
     public Task getTaskWithTree(int taskId) {
         try {
-            Task task = taskRepository.getTask(taskId);
+            // Load the task and all of its descendants in a single query
+            List<Task> subtree = taskRepository.getTaskSubtree(taskId);
+            Map<Integer, Task> tasksById = linkTaskForest(subtree, taskId);
 
+            Task task = tasksById.get(taskId);
             if (task == null) {
                 throw new TaskNotFoundException(taskId);
             }
 
-            Set<Integer> visitedTasks = new HashSet<>();
-            loadTaskTree(task, visitedTasks);
-
             return task;
         } catch (DataAccessException e) {
             throw new DatabaseOperationException("Failed to retrieve task with id=" + taskId, e);
@@ -78,72 +147,161 @@ public class TaskService {
         }
     }
 
+    @Transactional
     public void createTask(Task task) {
         try {
-            taskRepository.createTask(task);
+            int taskId = taskRepository.createTask(task);
+            task.setTaskId(taskId);
+
+            rollupRepository.refreshTaskRollups(List.of(taskId));
+            rollupRepository.refreshProjectRollups(List.of(task.getProjectId()));
+            projectRepository.bumpSubtreeVersions(List.of(task.getProjectId()));
         } catch (DataAccessException e) {
             throw new DatabaseOperationException("Database error during task creation", e);
         }
     }
 
+    @Transactional
     public void updateTask(Task task) {
         try{
+            // The old parent and project lose the task's hours if it was moved
+            Task before = taskRepository.getTask(task.getTaskId());
             taskRepository.updateTask(task);
+
+            if (before != null) {
+                rollupRepository.refreshTaskRollups(Arrays.asList(task.getTaskId(), before.getParentTaskId()));
+                rollupRepository.refreshProjectRollups(List.of(before.getProjectId(), task.getProjectId()));
+                projectRepository.bumpSubtreeVersions(List.of(before.getProjectId(), task.getProjectId()));
+            }
         } catch (DataAccessException e) {
             throw new DatabaseOperationException("Database error during task update", e);
         }
     }
 
-    private void loadTaskTree(Task task, Set<Integer> visitedTasks) {
-
-        // Prevent endless recursion by tracking visited task Ids.
-        // visitedTasks.add(...) returns false if the Id was already added,
-        // meaning we've already processed this project, so we stop recursing.
-        if (!visitedTasks.add(task.getTaskId())) {
-            return;
+    // Links a flat list of tasks into trees by setting the subtasks of each task.
+    // Tasks are indexed by id in a hash map, so every task is visited once.
+    // If rootTaskId is given, that task is never attached to a parent, so a loaded subtree cannot loop back on itself.
+    // Returns the index, so callers can look up the root(s) they need.
+    private Map<Integer, Task> linkTaskForest(List<Task> tasks, Integer rootTaskId) {
+        Map<Integer, Task> tasksById = new HashMap<>();
+        for (Task task : tasks) {
+            task.setSubTasks(new ArrayList<>());
+            tasksById.put(task.getTaskId(), task);
         }
 
-        try {
-            // Load direct subtasks
-            List<Task> subTasks = taskRepository.getSubTasks(task.getTaskId());
-            task.setSubTasks(subTasks);
-
-            // For each subtask, load its subtasks using recursion
-            // Base case implicit: when subTasks is empty loop will not run
-            for (Task subTask : subTasks) {
-                loadTaskTree(subTask, visitedTasks);
+        for (Task task : tasks) {
+            Integer parentTaskId = task.getParentTaskId();
+            Task parent = parentTaskId != null ? tasksById.get(parentTaskId) : null;
+            if (parent != null && !Objects.equals(task.getTaskId(), rootTaskId)) {
+                parent.addSubTask(task);
             }
-        } catch (DataAccessException e) {
-            throw new DatabaseOperationException("failed to retrieve subtasks for task with id " + task.getTaskId(), e);
         }
+
+        return tasksById;
     }
 
+    @Transactional
     public void deleteTask(int taskId){
         try {
-            int rowsAffected = taskRepository.deleteTask(taskId);
-            if (rowsAffected == 0) throw new TaskNotFoundException(taskId);
-            //task deleted if at least 1 row is affected
+            Task before = taskRepository.getTask(taskId);
+            if (before == null) throw new TaskNotFoundException(taskId);
+
+            taskRepository.deleteTask(taskId);
+
+            rollupRepository.refreshTaskRollups(Collections.singletonList(before.getParentTaskId()));
+            rollupRepository.refreshProjectRollups(List.of(before.getProjectId()));
+            projectRepository.bumpSubtreeVersions(List.of(before.getProjectId()));
         }catch (DataAccessException e){
             throw new DatabaseOperationException("Failed to delete task with id " + taskId, e);
         }
     }
 
-    public List<TimeEntry> getTimeEntriesByTaskId(int taskId) {
+    public TimeEntryPage getTimeEntryPage(int taskId, LocalDate from, LocalDate to,
+                                          LocalDate beforeDate, Integer beforeId, int pageSize) {
+        try {
+            return taskRepository.getTimeEntryPage(taskId, from, to, beforeDate, beforeId, pageSize);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to retrieve time entries for task with id " + taskId, e);
+        }
+    }
+
+    public double[] getLoggedHoursPerDay(int projectId, LocalDate from, LocalDate to) {
         try {
-            return taskRepository.getTimeEntriesByTaskId(taskId);
+            return taskRepository.getLoggedHoursPerDay(projectId, from, to);
         } catch (DataAccessException e) {
-            throw new DatabaseOperationException("Failed to retrieve task entries for task with id " + taskId, e);
+            throw new DatabaseOperationException("Failed to retrieve logged hours for project with id " + projectId, e);
         }
     }
 
+    // Returns once the entry is stored. With write-behind on, the entry is written together with other
+    // users' entries, and this waits for that batch to commit.
     public void addTimeEntry(TimeEntry newTimeEntry){
+        if (timeEntryBuffer != null) {
+            try {
+                timeEntryBuffer.submit(newTimeEntry).get(TIME_ENTRY_WRITE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                throw new DatabaseOperationException("Too many time entries are waiting to be saved, please try again", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof DatabaseOperationException databaseException) {
+                    throw databaseException;
+                }
+                throw new DatabaseOperationException("Failed to insert new time entry", e.getCause());
+            } catch (TimeoutException e) {
+                // The entry may still be written later, but the request should not hang on it
+                throw new DatabaseOperationException("Saving the time entry took too long, check whether it was saved", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DatabaseOperationException("Interrupted while saving the time entry", e);
+            }
+        }
+
         try {
-            taskRepository.createTimeEntry(newTimeEntry);
+            transactionTemplate.executeWithoutResult(status -> {
+                taskRepository.createTimeEntry(newTimeEntry);
+                rollupRepository.refreshRollupsForTask(newTimeEntry.getTaskId());
+                projectRepository.bumpHoursVersionForTask(newTimeEntry.getTaskId());
+            });
         } catch (DataAccessException e) {
             throw new DatabaseOperationException("Failed to insert new time entry", e);
         }
     }
 
+    public String getTimeEntryBufferStats() {
+        return timeEntryBuffer != null ? timeEntryBuffer.toString() : "disabled";
+    }
+
+    // Called by the write-behind writer thread with the entries queued since the last batch
+    private void writeTimeEntryBatch(List<TimeEntry> entries) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                Map<Integer, Integer> projectIds = taskRepository.getProjectIdsByTaskIds(
+                        entries.stream().map(TimeEntry::getTaskId).distinct().toList());
+                addTimeEntries(entries, new LinkedHashSet<>(projectIds.values()));
+            } catch (DataAccessException e) {
+                throw new DatabaseOperationException("Failed to insert new time entries", e);
+            }
+        });
+    }
+
+    // Saves several entries with one batch insert, and refreshes the totals once per task and project instead of once per entry.
+    // The projects of the tasks are passed in, since callers have already looked them up for the access check.
+    @Transactional
+    public void addTimeEntries(List<TimeEntry> newTimeEntries, Collection<Integer> projectIds){
+        if (newTimeEntries.isEmpty()) {
+            return;
+        }
+
+        try {
+            taskRepository.createTimeEntries(newTimeEntries);
+            rollupRepository.refreshTaskRollups(newTimeEntries.stream().map(TimeEntry::getTaskId).distinct().toList());
+            rollupRepository.refreshProjectRollups(projectIds);
+            projectRepository.bumpHoursVersions(projectIds);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to insert new time entries", e);
+        }
+    }
+
     public List<Task> getAllTasksInProject(int projectId){
         try {
             return taskRepository.getAllTasksInProject(projectId);
@@ -157,43 +315,71 @@ public class TaskService {
         if (newParentId == null) {return false;} //top level task is safe
         if (newParentId == taskId) {return true;} //Can't be own parent
 
-        //Get all descendant taskIds of the task and check if newParentId is in it
-        Set<Integer> descendantset = getDescendantTaskId(taskId);
-        // .contains is a hashset method that checks if a value exists in the set
-        return descendantset.contains(newParentId); //Returns true if newParentId is in descendantset
+        try {
+            //The new parent can't be one of the task's descendants
+            return taskRepository.isDescendantOf(newParentId, taskId);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to check the subtasks of task with id " + taskId, e);
+        }
     }
 
-    public void moveTaskToProject(int taskId, int targetProjectId) {
-        Task task = getTask(taskId);
-        moveTaskAndSubtasksToProject(task ,targetProjectId);
-    }
+    //Moves the task and all of its subtasks in one transaction, returns the number of tasks moved
+    @Transactional
+    public int moveTaskToProject(int taskId, int targetProjectId) {
+        try {
+            Task before = taskRepository.getTask(taskId);
+            if (before == null) throw new TaskNotFoundException(taskId);
 
-    //Recursive Helper methods
-    //Recursively moves tasks and all subtasks to targetProjectId
-    private void moveTaskAndSubtasksToProject(Task task, int targetProjectId){
-        taskRepository.updateTaskProjectId(task.getTaskId(), targetProjectId);
+            int rowsAffected = taskRepository.moveTaskSubtreeToProject(taskId, targetProjectId);
 
-        //Get subtasks from DB and move them recursively
-        List<Task> subTasks = taskRepository.getSubTasks(task.getTaskId());
-        for (Task subTask : subTasks) {
-            moveTaskAndSubtasksToProject(subTask, targetProjectId);
+            rollupRepository.refreshTaskRollups(Arrays.asList(taskId, before.getParentTaskId()));
+            rollupRepository.refreshProjectRollups(List.of(before.getProjectId(), targetProjectId));
+            projectRepository.bumpSubtreeVersions(List.of(before.getProjectId(), targetProjectId));
+            return rowsAffected;
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to move task with id " + taskId + " to project with id " + targetProjectId, e);
         }
     }
 
-    //Gets all descendant taskIds of a task recursively
-    private Set<Integer> getDescendantTaskId(int taskId){
-        //HashSet to prevent duplicates
-        Set<Integer> descendants = new HashSet<>();
+    // Compares the closure table with parent_task_id and rebuilds it if they disagree.
+    // Returns the number of rows that were out of date.
+    public int verifyTaskClosure() {
+        try {
+            int drift = taskRepository.countTaskClosureDrift();
+            if (drift > 0) {
+                taskRepository.rebuildTaskClosure();
+            }
+            return drift;
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to verify task closure", e);
+        }
+    }
 
-        //get all and ONLY direct children from DB
-        List<Task> subTasks = taskRepository.getSubTasks(taskId);
+    // Compares the logged hours summary with time_entry and rebuilds it if they disagree.
+    // Returns the number of tasks that were out of date.
+    public int verifyHoursSummary() {
+        try {
+            int drift = taskRepository.countHoursSummaryDrift();
+            if (drift > 0) {
+                taskRepository.rebuildHoursSummary();
+            }
+            return drift;
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to verify task hours summary", e);
+        }
+    }
 
-        for (Task subTask : subTasks) {
-            //Add the subtask ID
-            descendants.add(subTask.getTaskId());
-            //add all of its descendants recursively
-            descendants.addAll(getDescendantTaskId(subTask.getTaskId()));
+    // Compares the stored task and project rollups with a fresh computation and rebuilds them if they disagree.
+    // Returns the number of rows that were out of date.
+    public int verifyRollups() {
+        try {
+            int drift = rollupRepository.countRollupDrift();
+            if (drift > 0) {
+                rollupRepository.rebuildRollups();
+            }
+            return drift;
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to verify rollups", e);
         }
-        return descendants;
     }
 }
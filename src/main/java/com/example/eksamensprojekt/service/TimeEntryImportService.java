@@ -0,0 +1,298 @@
+package com.example.eksamensprojekt.service;
+
+import com.example.eksamensprojekt.exceptions.DatabaseOperationException;
+import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.model.TimeEntryImportResult;
+import com.example.eksamensprojekt.repository.TaskRepository;
+import com.example.eksamensprojekt.utils.CsvUtil;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Imports many time entries at once from a CSV or JSON file.
+// The file is read as a stream and saved in batches, so memory use does not grow with the file.
+// Rows that break the TimeEntry constraints, point at an unknown task, or that the importing user
+// may not log on are skipped and reported. Everything else is saved in one transaction.
+@Service
+public class TimeEntryImportService {
+    private static final int BATCH_SIZE = 1000;
+    private static final List<String> CSV_COLUMNS = List.of("task_id", "user_id", "work_date", "hours_worked", "description");
+
+    private final TaskRepository taskRepository;
+    private final TaskService taskService;
+    private final ProjectService projectService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    public TimeEntryImportService(TaskRepository taskRepository, TaskService taskService, ProjectService projectService,
+                                  Validator validator, ObjectMapper objectMapper) {
+        this.taskRepository = taskRepository;
+        this.taskService = taskService;
+        this.projectService = projectService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+    }
+
+    // Reads a CSV file with a header row naming the columns task_id, user_id, work_date (yyyy-MM-dd),
+    // hours_worked and description, in any order. Other columns are ignored, so an export can be imported again.
+    // Rows are numbered by the line they start on, the header being line 1.
+    @Transactional
+    public TimeEntryImportResult importCsv(InputStream in, int importingUserId) {
+        Batch batch = new Batch(importingUserId);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IllegalArgumentException("Filen er tom.");
+            }
+            Map<String, Integer> columns = readCsvHeader(header);
+
+            int lineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int row = ++lineNumber;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                // A quoted field may hold line breaks, so read on until its quote is closed
+                StringBuilder record = new StringBuilder(line);
+                while (!CsvUtil.isComplete(record) && (line = reader.readLine()) != null) {
+                    lineNumber++;
+                    record.append('\n').append(line);
+                }
+
+                try {
+                    List<String> fields = CsvUtil.parseLine(record.toString());
+                    TimeEntry entry = new TimeEntry();
+                    entry.setTaskId(Integer.parseInt(field(fields, columns, "task_id")));
+                    entry.setUserId(Integer.parseInt(field(fields, columns, "user_id")));
+                    entry.setWorkDate(LocalDate.parse(field(fields, columns, "work_date")));
+                    entry.setHoursWorked(Double.parseDouble(field(fields, columns, "hours_worked")));
+                    entry.setDescription(CsvUtil.unguardText(field(fields, columns, "description")));
+                    batch.add(row, entry);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    batch.result.reject(row, "Rækken kunne ikke læses: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read time entry import", e);
+        }
+
+        return batch.finish();
+    }
+
+    // Reads a JSON array of objects with the fields taskId, userId, workDate (yyyy-MM-dd), hoursWorked and description.
+    // Rows are numbered by their position in the array, starting at 1.
+    @Transactional
+    public TimeEntryImportResult importJson(InputStream in, int importingUserId) {
+        Batch batch = new Batch(importingUserId);
+
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Filen skal indeholde en JSON-liste.");
+            }
+
+            int row = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                row++;
+                // Read one object at a time, so a bad value only rejects its own row
+                JsonNode node = objectMapper.readTree(parser);
+                try {
+                    batch.add(row, objectMapper.treeToValue(node, TimeEntry.class));
+                } catch (JsonProcessingException e) {
+                    batch.result.reject(row, "Rækken kunne ikke læses: " + e.getOriginalMessage());
+                } catch (IllegalArgumentException e) {
+                    batch.result.reject(row, "Rækken kunne ikke læses: " + e.getMessage());
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new IllegalArgumentException("Filen skal indeholde en JSON-liste af objekter.");
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Filen er ikke gyldig JSON.", e);
+        }
+
+        return batch.finish();
+    }
+
+    private static Map<String, Integer> readCsvHeader(String header) {
+        List<String> names = CsvUtil.parseLine(header.replace("\uFEFF", ""));
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        List<String> missing = CSV_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Filen mangler kolonnerne " + String.join(", ", missing) + ".");
+        }
+        return columns;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        int index = columns.get(column);
+        if (index >= fields.size()) {
+            throw new IllegalArgumentException("mangler " + column);
+        }
+        return fields.get(index).trim();
+    }
+
+    // Collects valid rows and saves them BATCH_SIZE at a time.
+    // Task ids, the importing user's access and the logging users' access are resolved with one query each per batch.
+    private class Batch {
+        private final int importingUserId;
+        private final TimeEntryImportResult result = new TimeEntryImportResult();
+
+        private final List<TimeEntry> pending = new ArrayList<>();
+        private final List<Integer> pendingRows = new ArrayList<>();
+
+        private final Map<Integer, Integer> projectIdsByTask = new HashMap<>();
+        private final Set<Integer> unknownTasks = new HashSet<>();
+        private final Map<Integer, Boolean> accessByProject = new HashMap<>();
+        // Users known to have access, or not, to each project, so a pair is only looked up once
+        private final Map<Integer, Set<Integer>> usersWithAccess = new HashMap<>();
+        private final Map<Integer, Set<Integer>> usersWithoutAccess = new HashMap<>();
+
+        Batch(int importingUserId) {
+            this.importingUserId = importingUserId;
+        }
+
+        void add(int row, TimeEntry entry) {
+            Set<ConstraintViolation<TimeEntry>> violations = validator.validate(entry);
+            if (!violations.isEmpty()) {
+                result.reject(row, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(" ")));
+                return;
+            }
+
+            pending.add(entry);
+            pendingRows.add(row);
+            if (pending.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        TimeEntryImportResult finish() {
+            flush();
+            return result;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            try {
+                Set<Integer> newTaskIds = new HashSet<>();
+                for (TimeEntry entry : pending) {
+                    if (!projectIdsByTask.containsKey(entry.getTaskId()) && !unknownTasks.contains(entry.getTaskId())) {
+                        newTaskIds.add(entry.getTaskId());
+                    }
+                }
+                Map<Integer, Integer> found = taskRepository.getProjectIdsByTaskIds(newTaskIds);
+                projectIdsByTask.putAll(found);
+                newTaskIds.removeAll(found.keySet());
+                unknownTasks.addAll(newTaskIds);
+
+                // Resolve access to the projects seen for the first time together
+                Set<Integer> newProjectIds = new HashSet<>(found.values());
+                newProjectIds.removeAll(accessByProject.keySet());
+                Set<Integer> accessible = projectService.getAccessibleProjects(newProjectIds, importingUserId).keySet();
+                for (int projectId : newProjectIds) {
+                    accessByProject.put(projectId, accessible.contains(projectId));
+                }
+                resolveUserAccess();
+
+                List<TimeEntry> accepted = new ArrayList<>(pending.size());
+                Set<Integer> acceptedProjectIds = new LinkedHashSet<>();
+                for (int i = 0; i < pending.size(); i++) {
+                    TimeEntry entry = pending.get(i);
+                    String reason = checkAccess(entry);
+                    if (reason != null) {
+                        result.reject(pendingRows.get(i), reason);
+                    } else {
+                        accepted.add(entry);
+                        acceptedProjectIds.add(projectIdsByTask.get(entry.getTaskId()));
+                    }
+                }
+
+                // Saved the same way as entries from the timesheet, so the totals are refreshed once per batch
+                taskService.addTimeEntries(accepted, acceptedProjectIds);
+                result.addImported(accepted.size());
+            } catch (DataAccessException e) {
+                throw new DatabaseOperationException("Failed to import time entries", e);
+            }
+
+            pending.clear();
+            pendingRows.clear();
+        }
+
+        // Returns why the entry may not be saved, or null if it may
+        private String checkAccess(TimeEntry entry) {
+            Integer projectId = projectIdsByTask.get(entry.getTaskId());
+            if (projectId == null) {
+                return "Opgave " + entry.getTaskId() + " findes ikke.";
+            }
+            if (!accessByProject.get(projectId)) {
+                return "Du har ikke adgang til projektet for opgave " + entry.getTaskId() + ".";
+            }
+            if (!usersWithAccess.getOrDefault(projectId, Set.of()).contains(entry.getUserId())) {
+                return "Bruger " + entry.getUserId() + " har ikke adgang til projektet for opgave " + entry.getTaskId() + ".";
+            }
+            return null;
+        }
+
+        // Looks up the users not seen yet on the pending entries' projects together.
+        // Access is inherited from ancestor projects, the same as when logging time in the timesheet.
+        private void resolveUserAccess() {
+            Set<Integer> projectIds = new HashSet<>();
+            Set<Integer> userIds = new HashSet<>();
+            for (TimeEntry entry : pending) {
+                Integer projectId = projectIdsByTask.get(entry.getTaskId());
+                if (projectId == null || !accessByProject.get(projectId)
+                        || usersWithAccess.getOrDefault(projectId, Set.of()).contains(entry.getUserId())
+                        || usersWithoutAccess.getOrDefault(projectId, Set.of()).contains(entry.getUserId())) {
+                    continue;
+                }
+                projectIds.add(projectId);
+                userIds.add(entry.getUserId());
+            }
+            if (projectIds.isEmpty()) {
+                return;
+            }
+
+            Map<Integer, Set<Integer>> found = projectService.getUsersWithAccess(projectIds, userIds);
+            for (int projectId : projectIds) {
+                Set<Integer> withAccess = found.getOrDefault(projectId, Set.of());
+                usersWithAccess.computeIfAbsent(projectId, id -> new HashSet<>()).addAll(withAccess);
+                Set<Integer> withoutAccess = usersWithoutAccess.computeIfAbsent(projectId, id -> new HashSet<>());
+                for (int userId : userIds) {
+                    if (!withAccess.contains(userId)) {
+                        withoutAccess.add(userId);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.eksamensprojekt.service;
+
+import com.example.eksamensprojekt.exceptions.DatabaseOperationException;
+import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.model.Timesheet;
+import com.example.eksamensprojekt.repository.TaskRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+// The weekly timesheet: a grid of tasks and days where a user logs a whole week in one submission
+@Service
+public class TimesheetService {
+    private final TaskRepository taskRepository;
+    private final TaskService taskService;
+    private final ProjectService projectService;
+    private final Validator validator;
+
+    public TimesheetService(TaskRepository taskRepository, TaskService taskService,
+                            ProjectService projectService, Validator validator) {
+        this.taskRepository = taskRepository;
+        this.taskService = taskService;
+        this.projectService = projectService;
+        this.validator = validator;
+    }
+
+    // The week (Monday to Sunday) containing the given day
+    public Timesheet getTimesheet(int userId, LocalDate day) {
+        LocalDate weekStart = day.with(DayOfWeek.MONDAY);
+        LocalDate weekEnd = weekStart.plusDays(Timesheet.DAYS - 1);
+        try {
+            return new Timesheet(weekStart,
+                    taskRepository.getTimesheetTasks(userId, weekStart, weekEnd),
+                    taskRepository.getTimeEntriesByUserId(userId, weekStart, weekEnd));
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to retrieve timesheet for user with id " + userId, e);
+        }
+    }
+
+    // Saves the filled cells of a timesheet as the user's time entries.
+    // Access to every task is checked with one lookup of their projects and one permission query,
+    // and the entries are saved with one batch insert. Returns what is wrong with the submission;
+    // if anything is, nothing is saved.
+    @Transactional
+    public List<String> saveTimesheet(int userId, List<TimeEntry> entries) {
+        List<String> errors = new ArrayList<>();
+        for (TimeEntry entry : entries) {
+            for (ConstraintViolation<TimeEntry> violation : validator.validate(entry)) {
+                errors.add("Opgave " + entry.getTaskId() + ", " + entry.getWorkDate() + ": " + violation.getMessage());
+            }
+        }
+        if (!errors.isEmpty() || entries.isEmpty()) {
+            return errors;
+        }
+
+        Map<Integer, Integer> projectIdsByTask;
+        Set<Integer> accessibleProjects;
+        try {
+            projectIdsByTask = taskRepository.getProjectIdsByTaskIds(entries.stream().map(TimeEntry::getTaskId).distinct().toList());
+            accessibleProjects = projectService.getAccessibleProjects(new HashSet<>(projectIdsByTask.values()), userId).keySet();
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to check access to timesheet tasks for user with id " + userId, e);
+        }
+
+        Set<Integer> rejectedTasks = new TreeSet<>();
+        for (TimeEntry entry : entries) {
+            Integer projectId = projectIdsByTask.get(entry.getTaskId());
+            if (projectId == null || !accessibleProjects.contains(projectId)) {
+                rejectedTasks.add(entry.getTaskId());
+            }
+        }
+        for (int taskId : rejectedTasks) {
+            errors.add("Du kan ikke registrere timer på opgave " + taskId + ".");
+        }
+        if (!errors.isEmpty()) {
+            return errors;
+        }
+
+        taskService.addTimeEntries(entries, new LinkedHashSet<>(projectIdsByTask.values()));
+        return errors;
+    }
+}
@@ -3,8 +3,10 @@ package com.example.eksamensprojekt.service;
 import com.example.eksamensprojekt.exceptions.DatabaseOperationException;
 import com.example.eksamensprojekt.exceptions.UserNotFoundException;
 import com.example.eksamensprojekt.model.User;
+import com.example.eksamensprojekt.model.UserSummary;
 import com.example.eksamensprojekt.repository.UserRepository;
 import com.example.eksamensprojekt.utils.PasswordUtil;
+import com.example.eksamensprojekt.utils.UserDirectoryIndex;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
@@ -14,6 +16,10 @@ import java.util.List;
 public class UserService {
     UserRepository userRepository;
 
+    // Typeahead index over all users, loaded on the first search and kept current by the writes below
+    private final UserDirectoryIndex directoryIndex = new UserDirectoryIndex();
+    private volatile boolean directoryLoaded = false;
+
     public UserService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
@@ -72,12 +78,15 @@ public class UserService {
         }
     }
 
-    public void registerUser(User user) {
+    public int registerUser(User user) {
         try {
             String plainPassword = user.getPasswordHash();
             String passwordHash = PasswordUtil.hashPassword(plainPassword);
             user.setPasswordHash(passwordHash);
-            userRepository.registerUser(user);
+            int userId = userRepository.registerUser(user);
+            user.setUserId(userId);
+            indexUser(user);
+            return userId;
         } catch (DataAccessException e) {
             throw new DatabaseOperationException("Failed to register user", e);
         }
@@ -87,6 +96,7 @@ public class UserService {
         try {
             int rowsAffected = userRepository.updateUser(updatedUser);
             if (rowsAffected == 0) throw new UserNotFoundException(updatedUser.getUserId());
+            indexUser(updatedUser);
             return true; // User updated
         } catch (DataAccessException e) {
             throw new DatabaseOperationException("Failed to update user", e);
@@ -108,6 +118,7 @@ public class UserService {
         try {
             int rowsAffected = userRepository.deleteUser(userId);
             if (rowsAffected == 0) throw new UserNotFoundException(userId);
+            directoryIndex.remove(userId);
             return true; // User deleted
         } catch (DataAccessException e) {
             throw new DatabaseOperationException("Failed to delete user", e);
@@ -121,6 +132,36 @@ public class UserService {
             throw new DatabaseOperationException("Failed to retrieve all users", e);
         }
     }
-}
 
+    // Users whose email or name starts with the prefix, for typeahead fields
+    public List<UserSummary> searchUsers(String prefix, int limit) {
+        try {
+            loadDirectory();
+            return directoryIndex.search(prefix, limit);
+        } catch (DataAccessException e) {
+            throw new DatabaseOperationException("Failed to load the user directory", e);
+        }
+    }
 
+    private void loadDirectory() {
+        if (directoryLoaded) {
+            return;
+        }
+        synchronized (directoryIndex) {
+            if (!directoryLoaded) {
+                directoryIndex.replaceAll(userRepository.getUserDirectory());
+                directoryLoaded = true;
+            }
+        }
+    }
+
+    private void indexUser(User user) {
+        // Until the first search the index is empty, the full load will include the user.
+        // Locking on the index waits for a load in progress, so the change is not lost.
+        synchronized (directoryIndex) {
+            if (directoryLoaded) {
+                directoryIndex.put(new UserSummary(user.getUserId(), user.getEmail(), user.getName(), user.getTitle()));
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.eksamensprojekt.utils;
+
+import java.time.LocalDate;
+import java.util.function.LongPredicate;
+
+// Cumulative count of business days for a range of years, so the business days of any span
+// inside the range are found with two array lookups.
+// Which days count inside the range is decided by the predicate, which gets the epoch day.
+public class BusinessDayIndex {
+    private final long firstDay;
+    private final long lastDay;
+    private final LongPredicate isBusinessDay;
+
+    // cumulative[i] is the number of business days before firstDay + i
+    private final int[] cumulative;
+
+    public BusinessDayIndex(int firstYear, int lastYear, LongPredicate isBusinessDay) {
+        this.firstDay = LocalDate.of(firstYear, 1, 1).toEpochDay();
+        this.lastDay = LocalDate.of(lastYear, 12, 31).toEpochDay();
+        this.isBusinessDay = isBusinessDay;
+
+        int days = (int) (lastDay - firstDay + 1);
+        this.cumulative = new int[days + 1];
+        for (int i = 0; i < days; i++) {
+            cumulative[i + 1] = cumulative[i] + (isBusinessDay.test(firstDay + i) ? 1 : 0);
+        }
+    }
+
+    // Counts the business days from startDate to endDate, both included.
+    // Outside the indexed years every weekday counts, using DateUtil's closed form.
+    public long businessDaysBetween(LocalDate startDate, LocalDate endDate) {
+        long from = startDate.toEpochDay();
+        long to = endDate.toEpochDay();
+        if (from > to) {
+            return 0;
+        }
+
+        long count = 0;
+        if (from < firstDay) {
+            count += DateUtil.weekdaysBetween(from, Math.min(to, firstDay - 1));
+        }
+        if (to > lastDay) {
+            count += DateUtil.weekdaysBetween(Math.max(from, lastDay + 1), to);
+        }
+
+        long indexedFrom = Math.max(from, firstDay);
+        long indexedTo = Math.min(to, lastDay);
+        if (indexedFrom <= indexedTo) {
+            count += cumulative[(int) (indexedTo - firstDay) + 1] - cumulative[(int) (indexedFrom - firstDay)];
+        }
+        return count;
+    }
+
+    public boolean isBusinessDay(LocalDate date) {
+        return isBusinessDay.test(date.toEpochDay());
+    }
+}
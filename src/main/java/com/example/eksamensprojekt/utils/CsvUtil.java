@@ -0,0 +1,85 @@
+package com.example.eksamensprojekt.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal CSV handling for imports and exports: comma separated, fields may be quoted with ",
+// and a quote inside a quoted field is written twice. Quoted fields may hold line breaks, so a record
+// can span several lines; readers join lines until isComplete() before calling parseLine().
+public class CsvUtil {
+
+    public static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // True when every quoted field in the text is closed, so it holds whole records.
+    // An escaped quote is two quote characters, so counting them is enough.
+    public static boolean isComplete(CharSequence text) {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes % 2 == 0;
+    }
+
+    // Joins the values into one line, ending in a line break. Values with a comma, quote or line break are quoted.
+    // Text starting with =, +, - or @ gets a leading ' so spreadsheets show it instead of running it as a formula.
+    // Only strings are guarded, so negative numbers are written as they are.
+    public static String formatLine(Object... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String value = values[i] instanceof String text && isFormula(text)
+                    ? "'" + text
+                    : values[i] != null ? values[i].toString() : "";
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.append('\n').toString();
+    }
+
+    // Removes the ' that formatLine() put in front of text that looks like a formula
+    public static String unguardText(String value) {
+        return value.startsWith("'") && isFormula(value.substring(1)) ? value.substring(1) : value;
+    }
+
+    private static boolean isFormula(String text) {
+        return !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0;
+    }
+}
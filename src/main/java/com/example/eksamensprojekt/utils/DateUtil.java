@@ -1,22 +1,50 @@
 package com.example.eksamensprojekt.utils;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 
 public class DateUtil {
 
+    // The calendar used for business days. Set by CalendarService when it is created and on every reload.
+    private static volatile WorkingDayCalendar calendar = WorkingDayCalendar.WEEKENDS_ONLY;
+
+    public static void setCalendar(WorkingDayCalendar workingDayCalendar) {
+        calendar = workingDayCalendar;
+    }
+
+    // Counts the business days from startDate to endDate, both included, skipping weekends and the calendar's closed days
     public static long businessDaysBetween(LocalDate startDate, LocalDate endDate) {
-        long days = 0;
-        LocalDate current = startDate;
-
-        while (!current.isAfter(endDate)) {
-            DayOfWeek dow = current.getDayOfWeek();
-            if (dow != DayOfWeek.SATURDAY && dow != DayOfWeek.SUNDAY) {
-                days++;
-            }
-            current = current.plusDays(1);
+        return calendar.workingDaysBetween(startDate, endDate);
+    }
+
+    public static boolean isBusinessDay(long epochDay) {
+        return calendar.isWorkingDay(epochDay);
+    }
+
+    // Counts the weekdays from startDate to endDate, both included, without looping over the days
+    public static long weekdaysBetween(LocalDate startDate, LocalDate endDate) {
+        return weekdaysBetween(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    static long weekdaysBetween(long fromEpochDay, long toEpochDay) {
+        if (fromEpochDay > toEpochDay) {
+            return 0;
         }
+        return weekdaysBefore(toEpochDay + 1) - weekdaysBefore(fromEpochDay);
+    }
+
+    public static boolean isWeekday(long epochDay) {
+        return dayOfWeekIndex(epochDay) < 5;
+    }
+
+    // Number of weekdays before the given epoch day, counted from the Monday 1969-12-29.
+    // Every full week adds 5, and the days of the last partial week add at most 5.
+    static long weekdaysBefore(long epochDay) {
+        long daysSinceMonday = epochDay + 3;
+        return Math.floorDiv(daysSinceMonday, 7) * 5 + Math.min(Math.floorMod(daysSinceMonday, 7), 5);
+    }
 
-        return days;
+    // 1970-01-01 (epoch day 0) was a Thursday, so shifting by 3 makes Monday 0 and Saturday 5
+    private static int dayOfWeekIndex(long epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
     }
 }
@@ -0,0 +1,104 @@
+package com.example.eksamensprojekt.utils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+// Small thread safe in-memory cache.
+// Holds at most maxSize entries and drops the least recently used one when full.
+// Entries expire after the time to live, counted from when they were stored.
+public class ExpiringLruCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ExpiringLruCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    // The clock returns nanoseconds, like System.nanoTime(). Tests pass their own to control expiry.
+    public ExpiringLruCache(int maxSize, Duration ttl, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        // Access order moves an entry to the end every time it is read, so the first entry is the least recently used
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // Returns the cached value, or null if there is none or it has expired
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        if (clock.getAsLong() - entry.storedAt >= ttlNanos) {
+            entries.remove(key);
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, clock.getAsLong()));
+
+        if (entries.size() > maxSize) {
+            Iterator<K> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    // Removes every entry whose key matches
+    public synchronized void invalidateIf(Predicate<K> predicate) {
+        entries.keySet().removeIf(predicate);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "size=" + entries.size() + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions;
+    }
+
+    private record Entry<V>(V value, long storedAt) {
+    }
+}
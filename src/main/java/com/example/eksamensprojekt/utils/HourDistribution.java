@@ -0,0 +1,261 @@
+package com.example.eksamensprojekt.utils;
+
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Spreads hours over business days using primitive arrays indexed by day.
+// Each range is added in constant time to a difference array, and one prefix sum pass turns it into hours per day,
+// so distributing n ranges over d days costs O(n + d) no matter how long the ranges are.
+public class HourDistribution {
+    private long[] fromDays = new long[16];
+    private long[] toDays = new long[16];
+    private double[] rates = new double[16];
+    private int size;
+
+    // Adds hoursPerBusinessDay to every business day from 'from' to 'to', both included
+    public void addDailyRate(LocalDate from, LocalDate to, double hoursPerBusinessDay) {
+        if (from.isAfter(to)) {
+            return;
+        }
+        if (size == rates.length) {
+            fromDays = Arrays.copyOf(fromDays, size * 2);
+            toDays = Arrays.copyOf(toDays, size * 2);
+            rates = Arrays.copyOf(rates, size * 2);
+        }
+        fromDays[size] = from.toEpochDay();
+        toDays[size] = to.toEpochDay();
+        rates[size] = hoursPerBusinessDay;
+        size++;
+    }
+
+    // Returns the business days covered by at least one range, in date order
+    public Map<LocalDate, Double> toMap() {
+        return toMap(null, null);
+    }
+
+    // Returns every day from windowStart to windowEnd (also weekends, with 0 hours),
+    // plus any business day outside the window that is covered by a range, in date order.
+    // The map is a read-only view over the computed arrays.
+    public Map<LocalDate, Double> toMap(LocalDate windowStart, LocalDate windowEnd) {
+        long windowFrom = windowStart != null ? windowStart.toEpochDay() : Long.MAX_VALUE;
+        long windowTo = windowEnd != null ? windowEnd.toEpochDay() : Long.MIN_VALUE;
+
+        long first = windowFrom;
+        long last = windowTo;
+        for (int i = 0; i < size; i++) {
+            first = Math.min(first, fromDays[i]);
+            last = Math.max(last, toDays[i]);
+        }
+
+        if (first > last) {
+            return new DistributionMap(0, new double[0], new boolean[0], windowFrom, windowTo);
+        }
+
+        boolean[] covered = new boolean[(int) (last - first + 1)];
+        double[] hours = computeDays(first, last, covered);
+        return new DistributionMap(first, hours, covered, windowFrom, windowTo);
+    }
+
+    // Sums the estimated hours and the logged hours from 'from' to 'to' (both included) into buckets.
+    // loggedHoursPerDay holds the logged hours of each day in the window, starting at 'from', or is null if there are none.
+    // Only the days in the window are computed, and buckets cut by the window only count the days inside it.
+    public HourSeries toSeries(TimeBucket bucket, LocalDate from, LocalDate to, double[] loggedHoursPerDay) {
+        if (from.isAfter(to)) {
+            return new HourSeries(List.of(), new double[0], new double[0]);
+        }
+
+        long first = from.toEpochDay();
+        long last = to.toEpochDay();
+        int days = (int) (last - first + 1);
+        double[] hours = computeDays(first, last, new boolean[days]);
+        double[] logged = loggedHoursPerDay != null ? loggedHoursPerDay : new double[days];
+
+        List<String> labels = new ArrayList<>();
+        double[] estimated = new double[16];
+        double[] actual = new double[16];
+
+        // Both series are summed in the same walk over the days
+        LocalDate bucketStart = bucket.startOf(from);
+        while (!bucketStart.isAfter(to)) {
+            LocalDate nextStart = bucket.next(bucketStart);
+            int startIndex = (int) Math.max(bucketStart.toEpochDay() - first, 0);
+            int endIndex = (int) Math.min(nextStart.toEpochDay() - first, days);
+
+            double estimatedSum = 0;
+            double actualSum = 0;
+            for (int i = startIndex; i < endIndex; i++) {
+                estimatedSum += hours[i];
+                actualSum += logged[i];
+            }
+
+            int index = labels.size();
+            if (index == estimated.length) {
+                estimated = Arrays.copyOf(estimated, index * 2);
+                actual = Arrays.copyOf(actual, index * 2);
+            }
+            labels.add(bucket.label(bucketStart));
+            estimated[index] = estimatedSum;
+            actual[index] = actualSum;
+            bucketStart = nextStart;
+        }
+        return new HourSeries(labels, Arrays.copyOf(estimated, labels.size()), Arrays.copyOf(actual, labels.size()));
+    }
+
+    // The first day covered by a range, or null if there are no ranges
+    public LocalDate getFirstDay() {
+        if (size == 0) {
+            return null;
+        }
+        long first = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            first = Math.min(first, fromDays[i]);
+        }
+        return LocalDate.ofEpochDay(first);
+    }
+
+    // The last day covered by a range, or null if there are no ranges
+    public LocalDate getLastDay() {
+        if (size == 0) {
+            return null;
+        }
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            last = Math.max(last, toDays[i]);
+        }
+        return LocalDate.ofEpochDay(last);
+    }
+
+    // Computes the hours of each day from first to last, both included. Ranges are cut to fit.
+    // Marks the business days covered by at least one range in 'covered'.
+    private double[] computeDays(long first, long last, boolean[] covered) {
+        int days = (int) (last - first + 1);
+        double[] rateDeltas = new double[days + 1];
+        int[] coverDeltas = new int[days + 1];
+        for (int i = 0; i < size; i++) {
+            if (toDays[i] < first || fromDays[i] > last) {
+                continue;
+            }
+            int start = (int) (Math.max(fromDays[i], first) - first);
+            int end = (int) (Math.min(toDays[i], last) - first) + 1;
+            rateDeltas[start] += rates[i];
+            rateDeltas[end] -= rates[i];
+            coverDeltas[start]++;
+            coverDeltas[end]--;
+        }
+
+        double[] hours = new double[days];
+        double rate = 0;
+        int cover = 0;
+        for (int i = 0; i < days; i++) {
+            rate += rateDeltas[i];
+            cover += coverDeltas[i];
+            if (cover == 0) {
+                rate = 0; // drop rounding left over from ranges that have ended
+            }
+            if (DateUtil.isBusinessDay(first + i)) {
+                hours[i] = rate;
+                covered[i] = cover > 0;
+            }
+        }
+        return hours;
+    }
+
+    private static class DistributionMap extends AbstractMap<LocalDate, Double> {
+        private final long firstDay;
+        private final double[] hours;
+        private final boolean[] covered;
+        private final long windowFrom;
+        private final long windowTo;
+        private final int size;
+
+        DistributionMap(long firstDay, double[] hours, boolean[] covered, long windowFrom, long windowTo) {
+            this.firstDay = firstDay;
+            this.hours = hours;
+            this.covered = covered;
+            this.windowFrom = windowFrom;
+            this.windowTo = windowTo;
+            int count = 0;
+            for (int i = 0; i < hours.length; i++) {
+                if (isIncluded(i)) {
+                    count++;
+                }
+            }
+            this.size = count;
+        }
+
+        private boolean isIncluded(int index) {
+            long day = firstDay + index;
+            return covered[index] || (day >= windowFrom && day <= windowTo);
+        }
+
+        @Override
+        public Double get(Object key) {
+            if (!(key instanceof LocalDate date)) {
+                return null;
+            }
+            long index = date.toEpochDay() - firstDay;
+            if (index < 0 || index >= hours.length || !isIncluded((int) index)) {
+                return null;
+            }
+            return hours[(int) index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<LocalDate, Double>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<LocalDate, Double>> iterator() {
+                    return new Iterator<>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            int index = from;
+                            while (index < hours.length && !isIncluded(index)) {
+                                index++;
+                            }
+                            return index;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < hours.length;
+                        }
+
+                        @Override
+                        public Entry<LocalDate, Double> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next;
+                            next = advance(index + 1);
+                            return new SimpleImmutableEntry<>(LocalDate.ofEpochDay(firstDay + index), hours[index]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.eksamensprojekt.utils;
+
+import java.util.List;
+
+// Estimated and logged hours per bucket as parallel arrays, ready to be handed to a chart.
+// The arrays are shared with the cache, so they must not be changed.
+public class HourSeries {
+    private final List<String> labels;
+    private final double[] estimatedHours;
+    private final double[] actualHours;
+
+    public HourSeries(List<String> labels, double[] estimatedHours, double[] actualHours) {
+        this.labels = labels;
+        this.estimatedHours = estimatedHours;
+        this.actualHours = actualHours;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public double[] getEstimatedHours() {
+        return estimatedHours;
+    }
+
+    public double[] getActualHours() {
+        return actualHours;
+    }
+
+    public int size() {
+        return labels.size();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.eksamensprojekt.utils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.temporal.IsoFields;
+import java.util.Locale;
+
+// The periods hours can be grouped into when distributed over time
+public enum TimeBucket {
+    DAY("dag", Period.ofYears(2)),
+    WEEK("uge", Period.ofYears(5)),
+    MONTH("måned", Period.ofYears(10)),
+    QUARTER("kvartal", Period.ofYears(20));
+
+    private final String displayName;
+    // The longest window a series may cover, so one request can't build millions of buckets
+    private final Period maxWindow;
+
+    TimeBucket(String displayName, Period maxWindow) {
+        this.displayName = displayName;
+        this.maxWindow = maxWindow;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public Period getMaxWindow() {
+        return maxWindow;
+    }
+
+    // The last day of the longest window starting on the given day
+    public LocalDate maxWindowEnd(LocalDate windowStart) {
+        return windowStart.plus(maxWindow).minusDays(1);
+    }
+
+    // The first day of the longest window ending on the given day
+    public LocalDate maxWindowStart(LocalDate windowEnd) {
+        return windowEnd.minus(maxWindow).plusDays(1);
+    }
+
+    // Reads a query parameter like "week". Unknown or missing values give DAY.
+    public static TimeBucket fromParam(String param) {
+        if (param == null) {
+            return DAY;
+        }
+        for (TimeBucket bucket : values()) {
+            if (bucket.name().equalsIgnoreCase(param.trim())) {
+                return bucket;
+            }
+        }
+        return DAY;
+    }
+
+    public String getParam() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    // The first day of the bucket the date falls in
+    public LocalDate startOf(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(DayOfWeek.MONDAY);
+            case MONTH -> date.withDayOfMonth(1);
+            case QUARTER -> date.withMonth(date.get(IsoFields.QUARTER_OF_YEAR) * 3 - 2).withDayOfMonth(1);
+        };
+    }
+
+    // The first day of the next bucket
+    public LocalDate next(LocalDate bucketStart) {
+        return switch (this) {
+            case DAY -> bucketStart.plusDays(1);
+            case WEEK -> bucketStart.plusWeeks(1);
+            case MONTH -> bucketStart.plusMonths(1);
+            case QUARTER -> bucketStart.plusMonths(3);
+        };
+    }
+
+    // Chart label of the bucket starting on the given day, e.g. 2025-12-01, 2025-W49, 2025-12 or 2025-Q4
+    public String label(LocalDate bucketStart) {
+        return switch (this) {
+            case DAY -> bucketStart.toString();
+            case WEEK -> String.format("%d-W%02d", bucketStart.get(IsoFields.WEEK_BASED_YEAR),
+                    bucketStart.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case MONTH -> String.format("%d-%02d", bucketStart.getYear(), bucketStart.getMonthValue());
+            case QUARTER -> bucketStart.getYear() + "-Q" + bucketStart.get(IsoFields.QUARTER_OF_YEAR);
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.eksamensprojekt.utils;
+
+import com.example.eksamensprojekt.model.UserSummary;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Sorted in-memory index for typeahead search on users.
+// Every user is stored under their email, their full name and each word of the name, all lower case,
+// so a prefix lookup is a range scan over the sorted keys instead of a pass over every user.
+public class UserDirectoryIndex {
+    // Separates the search term from the user id in a key, sorts before every character a term can contain
+    private static final char SEPARATOR = '\u0000';
+
+    private final ConcurrentSkipListMap<String, UserSummary> entries = new ConcurrentSkipListMap<>();
+    private final Map<Integer, UserSummary> usersById = new ConcurrentHashMap<>();
+
+    // Adds the user, or replaces the entries of a user already in the index
+    public synchronized void put(UserSummary user) {
+        remove(user.getUserId());
+
+        for (String term : termsOf(user)) {
+            entries.put(term + SEPARATOR + user.getUserId(), user);
+        }
+        usersById.put(user.getUserId(), user);
+    }
+
+    public synchronized void remove(int userId) {
+        UserSummary existing = usersById.remove(userId);
+        if (existing == null) {
+            return;
+        }
+
+        for (String term : termsOf(existing)) {
+            entries.remove(term + SEPARATOR + userId);
+        }
+    }
+
+    public synchronized void replaceAll(Collection<UserSummary> users) {
+        entries.clear();
+        usersById.clear();
+        for (UserSummary user : users) {
+            put(user);
+        }
+    }
+
+    // Users whose email or any word of the name starts with the prefix, at most limit of them.
+    // Results follow the sort order of the matching term, each user only once.
+    public List<UserSummary> search(String prefix, int limit) {
+        String term = normalize(prefix);
+        if (term.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Every key starting with the term sorts between the term itself and the term followed by the highest character
+        ConcurrentNavigableMap<String, UserSummary> matches = entries.subMap(term, true, term + Character.MAX_VALUE, true);
+
+        Map<Integer, UserSummary> result = new LinkedHashMap<>();
+        for (UserSummary user : matches.values()) {
+            result.putIfAbsent(user.getUserId(), user);
+            if (result.size() == limit) {
+                break;
+            }
+        }
+
+        return new ArrayList<>(result.values());
+    }
+
+    public int size() {
+        return usersById.size();
+    }
+
+    private static Set<String> termsOf(UserSummary user) {
+        Set<String> terms = new HashSet<>();
+        if (user.getEmail() != null) {
+            terms.add(normalize(user.getEmail()));
+        }
+        if (user.getName() != null) {
+            terms.add(normalize(user.getName()));
+            for (String word : normalize(user.getName()).split("\\s+")) {
+                if (!word.isEmpty()) {
+                    terms.add(word);
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT).replace(String.valueOf(SEPARATOR), "");
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.eksamensprojekt.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+// Working days are weekdays that are not a holiday or closure day.
+// Closed days are kept in one BitSet per year, indexed by day of the year, so a lookup is an array access and a bit test.
+// Counting working days goes through a cumulative index over the loaded years; outside them only weekends are skipped.
+public class WorkingDayCalendar {
+    public static final WorkingDayCalendar WEEKENDS_ONLY = new WorkingDayCalendar(List.of());
+
+    private final long[] yearStartDays;
+    private final BitSet[] closedDaysByYear;
+    private final BusinessDayIndex index;
+
+    public WorkingDayCalendar(Collection<LocalDate> closedDays) {
+        if (closedDays.isEmpty()) {
+            this.yearStartDays = new long[0];
+            this.closedDaysByYear = new BitSet[0];
+            this.index = null;
+            return;
+        }
+
+        int minYear = closedDays.stream().mapToInt(LocalDate::getYear).min().getAsInt();
+        int maxYear = closedDays.stream().mapToInt(LocalDate::getYear).max().getAsInt();
+        int years = maxYear - minYear + 1;
+
+        this.yearStartDays = new long[years + 1];
+        this.closedDaysByYear = new BitSet[years];
+        for (int i = 0; i <= years; i++) {
+            yearStartDays[i] = LocalDate.of(minYear + i, 1, 1).toEpochDay();
+        }
+        for (int i = 0; i < years; i++) {
+            closedDaysByYear[i] = new BitSet(366);
+        }
+        for (LocalDate day : closedDays) {
+            closedDaysByYear[day.getYear() - minYear].set(day.getDayOfYear() - 1);
+        }
+
+        // The index gets the arrays rather than this calendar, which is not fully built yet
+        long[] starts = yearStartDays;
+        BitSet[] closed = closedDaysByYear;
+        this.index = new BusinessDayIndex(minYear, maxYear,
+                epochDay -> DateUtil.isWeekday(epochDay) && !isClosed(starts, closed, epochDay));
+    }
+
+    public boolean isWorkingDay(LocalDate date) {
+        return isWorkingDay(date.toEpochDay());
+    }
+
+    public boolean isWorkingDay(long epochDay) {
+        return DateUtil.isWeekday(epochDay) && !isClosed(yearStartDays, closedDaysByYear, epochDay);
+    }
+
+    // Counts the working days from startDate to endDate, both included
+    public long workingDaysBetween(LocalDate startDate, LocalDate endDate) {
+        return index == null ? DateUtil.weekdaysBetween(startDate, endDate) : index.businessDaysBetween(startDate, endDate);
+    }
+
+    private static boolean isClosed(long[] yearStartDays, BitSet[] closedDaysByYear, long epochDay) {
+        if (closedDaysByYear.length == 0 || epochDay < yearStartDays[0] || epochDay >= yearStartDays[closedDaysByYear.length]) {
+            return false;
+        }
+        // Estimate the year from the average year length, then correct it, since the estimate is off by at most one
+        int year = (int) ((epochDay - yearStartDays[0]) * 400 / 146097);
+        if (year >= closedDaysByYear.length || epochDay < yearStartDays[year]) {
+            year--;
+        } else if (epochDay >= yearStartDays[year + 1]) {
+            year++;
+        }
+        return closedDaysByYear[year].get((int) (epochDay - yearStartDays[year]));
+    }
+
+    // Reads closed days from a file with one ISO date (yyyy-MM-dd) per line.
+    // Anything after the date, separated by whitespace, is taken as a name and ignored. Lines starting with # are skipped.
+    public static List<LocalDate> readDates(Path file) throws IOException {
+        List<LocalDate> dates = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            dates.add(LocalDate.parse(trimmed.split("\\s+", 2)[0]));
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.eksamensprojekt.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Bounded queue in front of a batch writer, so many callers' writes go to the database together.
+// One writer thread takes items off the queue and writes them when batchSize items are waiting,
+// or flushInterval after the first item of the batch arrived, whichever comes first.
+// submit() returns a future that completes once the batch holding the item was written, so callers
+// that wait on it know the item is stored. When the queue is full, submit() waits up to offerTimeout
+// and then rejects the item, which slows callers down instead of letting the queue grow.
+// Every returned future completes: items still queued when the writer stops, for whatever reason, are failed.
+public class WriteBehindBuffer<T> implements AutoCloseable {
+    private final BlockingQueue<Pending<T>> queue;
+    private final Consumer<List<T>> writer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final Thread writerThread;
+
+    private volatile boolean closed;
+
+    private long batches;
+    private long written;
+    private long failed;
+
+    public WriteBehindBuffer(String name, int capacity, int batchSize, Duration flushInterval, Duration offerTimeout,
+                             Consumer<List<T>> writer) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("capacity and batchSize must be positive");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        // A daemon, so a buffer that is never closed doesn't keep the JVM alive. close() drains it on shutdown.
+        this.writerThread = new Thread(this::run, name);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // Queues the item. The future completes when it has been written, or fails with the writer's exception.
+    // Throws RejectedExecutionException if the queue stays full for offerTimeout, or the buffer is closed.
+    public CompletableFuture<Void> submit(T item) {
+        if (closed) {
+            throw new RejectedExecutionException("Write buffer is closed");
+        }
+
+        Pending<T> pending = new Pending<>(item, new CompletableFuture<>());
+        try {
+            if (!queue.offer(pending, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new RejectedExecutionException("Write buffer is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the write buffer", e);
+        }
+
+        // If close() ran while the item was being queued, the writer may already have stopped.
+        // Take the item back if it is still queued. Otherwise the writer took it, or failed it when it stopped.
+        if (closed && queue.remove(pending)) {
+            throw new RejectedExecutionException("Write buffer is closed");
+        }
+        return pending.done();
+    }
+
+    // Stops taking new items, writes everything already queued, and waits up to timeout for the writer to finish
+    public void close(Duration timeout) {
+        closed = true;
+        try {
+            writerThread.join(timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        close(Duration.ofSeconds(30));
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Pending<T>> batch = new ArrayList<>(batchSize);
+        try {
+            writeUntilClosed(batch);
+        } finally {
+            // Also reached if the writer throws an Error. Fail whatever is left, so no caller waits forever.
+            closed = true;
+            RejectedExecutionException stopped = new RejectedExecutionException("Write buffer stopped");
+            batch.forEach(pending -> pending.done().completeExceptionally(stopped));
+            Pending<T> left;
+            while ((left = queue.poll()) != null) {
+                left.done().completeExceptionally(stopped);
+            }
+        }
+    }
+
+    private void writeUntilClosed(List<Pending<T>> batch) {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                // Wake up now and then to notice close()
+                Pending<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch until it is full or the first item has waited flushInterval
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() == batchSize || wait <= 0 || closed) {
+                        break;
+                    }
+                    Pending<T> next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Only close() ends the loop, so queued items are never dropped
+                Thread.interrupted();
+            }
+
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending<T>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            writer.accept(batch.stream().map(Pending::item).toList());
+            complete(batch.size(), 0);
+            batch.forEach(pending -> pending.done().complete(null));
+        } catch (RuntimeException batchFailure) {
+            // One bad item fails the whole batch, so write them one at a time to fail only that one
+            for (Pending<T> pending : batch) {
+                try {
+                    writer.accept(List.of(pending.item()));
+                    complete(1, 0);
+                    pending.done().complete(null);
+                } catch (RuntimeException e) {
+                    complete(0, 1);
+                    pending.done().completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private synchronized void complete(int writtenItems, int failedItems) {
+        if (writtenItems > 0) {
+            batches++;
+        }
+        written += writtenItems;
+        failed += failedItems;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "queued=" + queue.size() + ", batches=" + batches + ", written=" + written + ", failed=" + failed;
+    }
+
+    private record Pending<T>(T item, CompletableFuture<Void> done) {
+    }
+}
@@ -26,6 +26,8 @@ CREATE TABLE project
     description       TEXT         NULL,
     start_date        DATE         NOT NULL,
     end_date          DATE         NOT NULL,
+    subtree_version   BIGINT       NOT NULL DEFAULT 0,
+    hours_version     BIGINT       NOT NULL DEFAULT 0,
     PRIMARY KEY (project_id),
     CONSTRAINT fk_project_parent_project_id FOREIGN KEY (parent_project_id)
         REFERENCES project (project_id)
@@ -37,6 +39,21 @@ CREATE TABLE project
         ON UPDATE CASCADE
 );
 
+CREATE TABLE project_closure
+(
+    ancestor_id   INT NOT NULL,
+    descendant_id INT NOT NULL,
+    depth         INT NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id),
+    INDEX idx_project_closure_descendant (descendant_id, depth),
+    CONSTRAINT fk_project_closure_ancestor_id FOREIGN KEY (ancestor_id)
+        REFERENCES project (project_id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_project_closure_descendant_id FOREIGN KEY (descendant_id)
+        REFERENCES project (project_id)
+        ON DELETE CASCADE
+);
+
 CREATE TABLE task_status
 (
     status_id   INT         NOT NULL,
@@ -71,6 +88,21 @@ CREATE TABLE task
 );
 
 
+CREATE TABLE task_closure
+(
+    ancestor_id   INT NOT NULL,
+    descendant_id INT NOT NULL,
+    depth         INT NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id),
+    INDEX idx_task_closure_descendant (descendant_id, depth),
+    CONSTRAINT fk_task_closure_ancestor_id FOREIGN KEY (ancestor_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_task_closure_descendant_id FOREIGN KEY (descendant_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE
+);
+
 CREATE TABLE time_entry
 (
     time_entry_id INT            NOT NULL AUTO_INCREMENT,
@@ -78,7 +110,10 @@ CREATE TABLE time_entry
     user_id       INT            NOT NULL,
     hours_worked  DECIMAL(10, 2) NOT NULL,
     description   VARCHAR(150)   NULL,
+    work_date     DATE           NOT NULL,
     PRIMARY KEY (time_entry_id),
+    INDEX idx_time_entry_task_date (task_id, work_date),
+    INDEX idx_time_entry_user_date (user_id, work_date),
     CONSTRAINT fk_time_entry_task_id FOREIGN KEY (task_id)
         REFERENCES task (task_id)
         ON DELETE CASCADE
@@ -89,6 +124,47 @@ CREATE TABLE time_entry
         ON UPDATE CASCADE
 );
 
+CREATE TABLE task_hours_summary
+(
+    task_id     INT            NOT NULL,
+    total_hours DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    entry_count INT            NOT NULL DEFAULT 0,
+    PRIMARY KEY (task_id),
+    CONSTRAINT fk_task_hours_summary_task_id FOREIGN KEY (task_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE
+);
+
+CREATE TABLE task_rollup
+(
+    task_id         INT            NOT NULL,
+    estimated_hours DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    actual_hours    DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (task_id),
+    CONSTRAINT fk_task_rollup_task_id FOREIGN KEY (task_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE
+);
+
+CREATE TABLE project_rollup
+(
+    project_id      INT            NOT NULL,
+    estimated_hours DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    actual_hours    DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (project_id),
+    CONSTRAINT fk_project_rollup_project_id FOREIGN KEY (project_id)
+        REFERENCES project (project_id)
+        ON DELETE CASCADE
+);
+
+-- Public holidays and company closure days, skipped when hours are distributed
+CREATE TABLE holiday
+(
+    holiday_date DATE         NOT NULL,
+    name         VARCHAR(100) NOT NULL,
+    PRIMARY KEY (holiday_date)
+);
+
 CREATE TABLE project_role
 (
     role      VARCHAR(20)  NOT NULL,
@@ -143,4 +219,41 @@ INSERT INTO project_role (role, role_name)
 VALUES ('OWNER', 'Ejer'),
        ('FULL_ACCESS', 'Komplet'),
        ('EDIT', 'Rediger'),
-       ('READ_ONLY', 'Se kun');
\ No newline at end of file
+       ('READ_ONLY', 'Se kun');
+
+
+-- Holidays and closure days
+INSERT INTO holiday (holiday_date, name)
+VALUES ('2025-01-01', 'Nytårsdag'),
+       ('2025-04-17', 'Skærtorsdag'),
+       ('2025-04-18', 'Langfredag'),
+       ('2025-04-21', '2. påskedag'),
+       ('2025-05-29', 'Kristi himmelfartsdag'),
+       ('2025-06-05', 'Grundlovsdag'),
+       ('2025-06-09', '2. pinsedag'),
+       ('2025-12-24', 'Juleaftensdag'),
+       ('2025-12-25', '1. juledag'),
+       ('2025-12-26', '2. juledag'),
+       ('2025-12-31', 'Nytårsaftensdag'),
+       ('2026-01-01', 'Nytårsdag'),
+       ('2026-04-02', 'Skærtorsdag'),
+       ('2026-04-03', 'Langfredag'),
+       ('2026-04-06', '2. påskedag'),
+       ('2026-05-14', 'Kristi himmelfartsdag'),
+       ('2026-05-25', '2. pinsedag'),
+       ('2026-06-05', 'Grundlovsdag'),
+       ('2026-12-24', 'Juleaftensdag'),
+       ('2026-12-25', '1. juledag'),
+       ('2026-12-26', '2. juledag'),
+       ('2026-12-31', 'Nytårsaftensdag'),
+       ('2027-01-01', 'Nytårsdag'),
+       ('2027-03-25', 'Skærtorsdag'),
+       ('2027-03-26', 'Langfredag'),
+       ('2027-03-29', '2. påskedag'),
+       ('2027-05-06', 'Kristi himmelfartsdag'),
+       ('2027-05-17', '2. pinsedag'),
+       ('2027-06-05', 'Grundlovsdag'),
+       ('2027-12-24', 'Juleaftensdag'),
+       ('2027-12-25', '1. juledag'),
+       ('2027-12-26', '2. juledag'),
+       ('2027-12-31', 'Nytårsaftensdag');
@@ -0,0 +1,211 @@
+-- ==========================================
+-- Upgrades an existing exam_project_db to the current schema
+-- without dropping data. Run the sections that are newer than the database.
+-- ==========================================
+USE exam_project_db;
+
+-- ===============================
+-- Project Closure
+-- ===============================
+CREATE TABLE IF NOT EXISTS project_closure
+(
+    ancestor_id   INT NOT NULL,
+    descendant_id INT NOT NULL,
+    depth         INT NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id),
+    INDEX idx_project_closure_descendant (descendant_id, depth),
+    CONSTRAINT fk_project_closure_ancestor_id FOREIGN KEY (ancestor_id)
+        REFERENCES project (project_id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_project_closure_descendant_id FOREIGN KEY (descendant_id)
+        REFERENCES project (project_id)
+        ON DELETE CASCADE
+);
+
+-- Backfill (the application also verifies and rebuilds the table on startup)
+DELETE FROM project_closure;
+INSERT INTO project_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE paths (ancestor_id, descendant_id, depth) AS (
+    SELECT project_id, project_id, 0 FROM project
+    UNION ALL
+    SELECT paths.ancestor_id, child.project_id, paths.depth + 1
+    FROM paths
+    JOIN project child ON child.parent_project_id = paths.descendant_id
+)
+SELECT ancestor_id, descendant_id, depth FROM paths;
+
+-- ===============================
+-- Task Closure
+-- ===============================
+CREATE TABLE IF NOT EXISTS task_closure
+(
+    ancestor_id   INT NOT NULL,
+    descendant_id INT NOT NULL,
+    depth         INT NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id),
+    INDEX idx_task_closure_descendant (descendant_id, depth),
+    CONSTRAINT fk_task_closure_ancestor_id FOREIGN KEY (ancestor_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_task_closure_descendant_id FOREIGN KEY (descendant_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE
+);
+
+-- Backfill (the application also verifies and rebuilds the table on startup)
+DELETE FROM task_closure;
+INSERT INTO task_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE paths (ancestor_id, descendant_id, depth) AS (
+    SELECT task_id, task_id, 0 FROM task
+    UNION ALL
+    SELECT paths.ancestor_id, child.task_id, paths.depth + 1
+    FROM paths
+    JOIN task child ON child.parent_task_id = paths.descendant_id
+)
+SELECT ancestor_id, descendant_id, depth FROM paths;
+
+-- ===============================
+-- Task Hours Summary
+-- ===============================
+CREATE TABLE IF NOT EXISTS task_hours_summary
+(
+    task_id     INT            NOT NULL,
+    total_hours DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    entry_count INT            NOT NULL DEFAULT 0,
+    PRIMARY KEY (task_id),
+    CONSTRAINT fk_task_hours_summary_task_id FOREIGN KEY (task_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE
+);
+
+-- Backfill (the application also verifies and rebuilds the table on startup)
+DELETE FROM task_hours_summary;
+INSERT INTO task_hours_summary (task_id, total_hours, entry_count)
+SELECT task_id, SUM(hours_worked), COUNT(*)
+FROM time_entry
+GROUP BY task_id;
+
+-- ===============================
+-- Rollups
+-- ===============================
+CREATE TABLE IF NOT EXISTS task_rollup
+(
+    task_id         INT            NOT NULL,
+    estimated_hours DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    actual_hours    DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (task_id),
+    CONSTRAINT fk_task_rollup_task_id FOREIGN KEY (task_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS project_rollup
+(
+    project_id      INT            NOT NULL,
+    estimated_hours DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    actual_hours    DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (project_id),
+    CONSTRAINT fk_project_rollup_project_id FOREIGN KEY (project_id)
+        REFERENCES project (project_id)
+        ON DELETE CASCADE
+);
+
+-- Backfill (the application also verifies and rebuilds the tables on startup)
+DELETE FROM task_rollup;
+DELETE FROM project_rollup;
+INSERT INTO task_rollup (task_id, estimated_hours, actual_hours)
+SELECT tc.ancestor_id,
+       SUM(CASE WHEN NOT EXISTS (SELECT 1 FROM task child WHERE child.parent_task_id = d.task_id)
+                THEN d.estimated_hours ELSE 0 END),
+       SUM(COALESCE(ths.total_hours, 0))
+FROM task_closure tc
+JOIN task d ON d.task_id = tc.descendant_id
+LEFT JOIN task_hours_summary ths ON ths.task_id = d.task_id
+GROUP BY tc.ancestor_id;
+
+INSERT INTO project_rollup (project_id, estimated_hours, actual_hours)
+SELECT pc.ancestor_id,
+       COALESCE(SUM(CASE WHEN NOT EXISTS (SELECT 1 FROM task child WHERE child.parent_task_id = t.task_id)
+                         THEN t.estimated_hours ELSE 0 END), 0),
+       COALESCE(SUM(ths.total_hours), 0)
+FROM project_closure pc
+LEFT JOIN task t ON t.project_id = pc.descendant_id
+LEFT JOIN task_hours_summary ths ON ths.task_id = t.task_id
+GROUP BY pc.ancestor_id;
+
+-- ===============================
+-- Holidays
+-- ===============================
+CREATE TABLE IF NOT EXISTS holiday
+(
+    holiday_date DATE         NOT NULL,
+    name         VARCHAR(100) NOT NULL,
+    PRIMARY KEY (holiday_date)
+);
+
+INSERT IGNORE INTO holiday (holiday_date, name)
+VALUES ('2025-01-01', 'Nytårsdag'),
+       ('2025-04-17', 'Skærtorsdag'),
+       ('2025-04-18', 'Langfredag'),
+       ('2025-04-21', '2. påskedag'),
+       ('2025-05-29', 'Kristi himmelfartsdag'),
+       ('2025-06-05', 'Grundlovsdag'),
+       ('2025-06-09', '2. pinsedag'),
+       ('2025-12-24', 'Juleaftensdag'),
+       ('2025-12-25', '1. juledag'),
+       ('2025-12-26', '2. juledag'),
+       ('2025-12-31', 'Nytårsaftensdag'),
+       ('2026-01-01', 'Nytårsdag'),
+       ('2026-04-02', 'Skærtorsdag'),
+       ('2026-04-03', 'Langfredag'),
+       ('2026-04-06', '2. påskedag'),
+       ('2026-05-14', 'Kristi himmelfartsdag'),
+       ('2026-05-25', '2. pinsedag'),
+       ('2026-06-05', 'Grundlovsdag'),
+       ('2026-12-24', 'Juleaftensdag'),
+       ('2026-12-25', '1. juledag'),
+       ('2026-12-26', '2. juledag'),
+       ('2026-12-31', 'Nytårsaftensdag'),
+       ('2027-01-01', 'Nytårsdag'),
+       ('2027-03-25', 'Skærtorsdag'),
+       ('2027-03-26', 'Langfredag'),
+       ('2027-03-29', '2. påskedag'),
+       ('2027-05-06', 'Kristi himmelfartsdag'),
+       ('2027-05-17', '2. pinsedag'),
+       ('2027-06-05', 'Grundlovsdag'),
+       ('2027-12-24', 'Juleaftensdag'),
+       ('2027-12-25', '1. juledag'),
+       ('2027-12-26', '2. juledag'),
+       ('2027-12-31', 'Nytårsaftensdag');
+
+-- ===============================
+-- Project Subtree Version
+-- ===============================
+-- Bumped on every change below a project, used as the key of cached hour distributions
+ALTER TABLE project
+    ADD COLUMN subtree_version BIGINT NOT NULL DEFAULT 0;
+
+-- ===============================
+-- Time Entry Work Date
+-- ===============================
+-- Existing entries have no known date, so they are placed on the start date of their task
+ALTER TABLE time_entry
+    ADD COLUMN work_date DATE NULL;
+
+UPDATE time_entry te
+JOIN task t ON t.task_id = te.task_id
+SET te.work_date = t.start_date
+WHERE te.work_date IS NULL;
+
+ALTER TABLE time_entry
+    MODIFY work_date DATE NOT NULL,
+    ADD INDEX idx_time_entry_task_date (task_id, work_date),
+    ADD INDEX idx_time_entry_user_date (user_id, work_date);
+
+-- ===============================
+-- Project Hours Version
+-- ===============================
+-- Bumped on the project itself when time is logged on its tasks, so logging never updates the ancestor rows.
+-- Cached hour distributions are keyed by the sum over the subtree together with subtree_version.
+ALTER TABLE project
+    ADD COLUMN hours_version BIGINT NOT NULL DEFAULT 0;
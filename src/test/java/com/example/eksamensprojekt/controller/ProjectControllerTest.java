@@ -1,8 +1,14 @@
 package com.example.eksamensprojekt.controller;
 
 import com.example.eksamensprojekt.model.Project;
+import com.example.eksamensprojekt.model.ProjectMember;
+import com.example.eksamensprojekt.model.ProjectRole;
+import com.example.eksamensprojekt.model.User;
+import com.example.eksamensprojekt.service.ExportService;
 import com.example.eksamensprojekt.service.ProjectService;
 import com.example.eksamensprojekt.service.UserService;
+import com.example.eksamensprojekt.utils.HourSeries;
+import com.example.eksamensprojekt.utils.TimeBucket;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -12,9 +18,18 @@ import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -32,6 +47,9 @@ public class ProjectControllerTest {
     @MockitoBean
     private UserService userService;
 
+    @MockitoBean
+    private ExportService exportService;
+
     private MockHttpSession session;
 
     @BeforeEach
@@ -143,8 +161,171 @@ public class ProjectControllerTest {
         verify(projectService).hasAccessToProject(1, 1);
         verify(projectService, never()).getProjectWithTree(anyInt());
     }
+
+    @Test
+    void shouldShowTeamWithDirectAndInheritedMembers() throws Exception {
+        // Arrange a roster with one direct and one inherited member
+        Project project = new Project();
+        project.setProjectId(3);
+        project.setOwnerId(1);
+        project.setTitle("Forside Redesign");
+
+        ProjectMember owner = new ProjectMember(new User(1, "anna@example.dk", null, "Anna Jensen", "Projektleder", false));
+        owner.setDirectRole(new ProjectRole("OWNER", "Ejer"));
+        ProjectMember inherited = new ProjectMember(new User(2, "bjorn@example.dk", null, "Bjørn Hansen", "Udvikler", false));
+        inherited.setInheritedRole(new ProjectRole("EDIT", "Redigering"));
+        inherited.setInheritedFromProjectId(1);
+        inherited.setInheritedFromProjectTitle("Website Redesign");
+
+        when(projectService.hasAccessToProject(3, 1)).thenReturn(true);
+        when(projectService.getUserRole(3, 1)).thenReturn(new ProjectRole("OWNER", "Ejer"));
+        when(projectService.getProject(3)).thenReturn(project);
+        when(projectService.getProjectRoster(3)).thenReturn(List.of(owner, inherited));
+
+        // Act & Assert
+        mockMvc.perform(get("/projects/3/team").session(session))
+                .andExpect(status().isOk())
+                .andExpect(view().name("project_team"))
+                .andExpect(model().attribute("directMembers", List.of(owner)))
+                .andExpect(model().attribute("inheritedMembers", List.of(inherited)))
+                .andExpect(content().string(containsString("Website Redesign")));
+
+        // Verify the roster was loaded once
+        verify(projectService).getProjectRoster(3);
+    }
+
     //create subproject test??
     //view project/subproject test??
     //
 
+
+    @Test
+    void shouldMoveSubProjectToOfferedTarget() throws Exception {
+        Project project = new Project(3, 1, 1, "Delprojekt", "", LocalDate.of(2025, 1, 1),
+                LocalDate.of(2025, 12, 31), new ArrayList<>(), new ArrayList<>());
+        Project sibling = new Project(6, 1, 1, "Søskende", "", LocalDate.of(2025, 1, 1),
+                LocalDate.of(2025, 12, 31), new ArrayList<>(), new ArrayList<>());
+
+        when(projectService.hasAccessToProject(3, 1)).thenReturn(true);
+        when(projectService.getProject(3)).thenReturn(project);
+        when(projectService.getProjectMoveTargets(project, 1)).thenReturn(List.of(sibling));
+
+        mockMvc.perform(post("/projects/3/move")
+                        .session(session)
+                        .param("targetProjectId", "6"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/projects/3"))
+                .andExpect(flash().attributeExists("moveSuccessMessage"));
+
+        verify(projectService).moveProject(3, 6);
+    }
+
+    @Test
+    void shouldNotMoveProjectToTargetThatIsNotOffered() throws Exception {
+        Project project = new Project(3, 2, 1, "Delprojekt", "", LocalDate.of(2025, 1, 1),
+                LocalDate.of(2025, 12, 31), new ArrayList<>(), new ArrayList<>());
+
+        when(projectService.hasAccessToProject(3, 1)).thenReturn(true);
+        when(projectService.getProject(3)).thenReturn(project);
+        when(projectService.getUserRole(3, 1)).thenReturn(new ProjectRole("FULL_ACCESS", "Fuld adgang"));
+        when(projectService.getProjectMoveTargets(project, 1)).thenReturn(List.of());
+
+        // A subproject of the project itself is never offered
+        mockMvc.perform(post("/projects/3/move")
+                        .session(session)
+                        .param("targetProjectId", "7"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attributeExists("moveErrorMessage"));
+
+        // Only the owner can move a project to the top level
+        mockMvc.perform(post("/projects/3/move")
+                        .session(session)
+                        .param("targetProjectId", ""))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attributeExists("moveErrorMessage"));
+
+        verify(projectService, never()).moveProject(anyInt(), any());
+    }
+
+    @Test
+    void shouldShowHourDistributionGroupedByWeek() throws Exception {
+        Project project = new Project(1, 1, null, "Projekt", "", LocalDate.of(2025, 12, 1),
+                LocalDate.of(2025, 12, 31), new ArrayList<>(), new ArrayList<>());
+        HourSeries series = new HourSeries(List.of("2025-W50"), new double[]{5.0}, new double[]{3.0});
+
+        when(projectService.hasAccessToProject(1, 1)).thenReturn(true);
+        when(projectService.getProject(1)).thenReturn(project);
+        when(projectService.getHourSeries(project, TimeBucket.WEEK, LocalDate.of(2025, 12, 8), null))
+                .thenReturn(series);
+
+        mockMvc.perform(get("/projects/1/hour_distribution")
+                        .param("bucket", "week")
+                        .param("from", "2025-12-08")
+                        .session(session))
+                .andExpect(status().isOk())
+                .andExpect(view().name("project_hour_distribution"))
+                .andExpect(model().attribute("bucket", TimeBucket.WEEK))
+                .andExpect(model().attribute("hourSeries", series));
+
+        // The tree is only loaded by the service when the distribution is not cached
+        verify(projectService, never()).getProjectWithTree(anyInt());
+    }
+
+    @Test
+    void shouldRejectHourDistributionWindowEndingBeforeItStarts() throws Exception {
+        when(projectService.hasAccessToProject(1, 1)).thenReturn(true);
+
+        mockMvc.perform(get("/projects/1/hour_distribution")
+                        .param("from", "2025-12-31")
+                        .param("to", "2025-12-01")
+                        .session(session))
+                .andExpect(status().isBadRequest());
+
+        verify(projectService, never()).getHourSeries(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldStreamTimeEntryExportAsCsv() throws Exception {
+        when(projectService.hasAccessToProject(1, 1)).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.<Writer>getArgument(1).write("time_entry_id\n1\n");
+            return null;
+        }).when(exportService).writeTimeEntriesCsv(eq(1), any());
+
+        mockMvc.perform(get("/projects/1/export/time_entries.csv").session(session))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", containsString("project-1-time-entries.csv")))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string("time_entry_id\n1\n"));
+    }
+
+    @Test
+    void shouldGzipTaskExportWhenAccepted() throws Exception {
+        when(projectService.hasAccessToProject(1, 1)).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.<Writer>getArgument(1).write("task_id\n1\n");
+            return null;
+        }).when(exportService).writeTasksCsv(eq(1), any());
+
+        byte[] body = mockMvc.perform(get("/projects/1/export/tasks.csv").session(session).header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("task_id\n1\n");
+        }
+    }
+
+    @Test
+    void shouldNotExportWithoutAccess() throws Exception {
+        when(projectService.hasAccessToProject(1, 1)).thenReturn(false);
+
+        mockMvc.perform(get("/projects/1/export/tasks.csv").session(session))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("http://localhost/projects"));
+
+        verify(exportService, never()).writeTasksCsv(anyInt(), any());
+    }
 }
@@ -3,6 +3,7 @@ package com.example.eksamensprojekt.controller;
 import com.example.eksamensprojekt.model.ProjectRole;
 import com.example.eksamensprojekt.model.Task;
 import com.example.eksamensprojekt.model.TaskStatus;
+import com.example.eksamensprojekt.model.TimeEntryPage;
 import com.example.eksamensprojekt.service.ProjectService;
 import com.example.eksamensprojekt.service.TaskService;
 import com.example.eksamensprojekt.service.UserService;
@@ -131,4 +132,29 @@ public class TaskControllerTest {
     //Show task when not has access test
 
 
+
+    @Test
+    void shouldShowOnePageOfTimeEntries() throws Exception {
+        Task task = new Task();
+        task.setTaskId(2);
+        task.setProjectId(1);
+        task.setTitle("Paging Test");
+        task.setTimeEntryCount(300);
+
+        TimeEntryPage page = new TimeEntryPage(new ArrayList<>(), false);
+
+        when(projectService.hasAccessToProject(1, 1)).thenReturn(true);
+        when(taskService.getTask(2)).thenReturn(task);
+        when(projectService.getUserRole(1, 1)).thenReturn(new ProjectRole("OWNER", "Ejer"));
+        when(taskService.getTimeEntryPage(2, null, null, null, null, 200)).thenReturn(page);
+
+        //the page size is capped
+        mockMvc.perform(get("/tasks/2/time_entries").session(session).param("size", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("task_time_entries"))
+                .andExpect(model().attribute("page", page))
+                .andExpect(model().attribute("size", 200));
+
+        verify(taskService).getTimeEntryPage(2, null, null, null, null, 200);
+    }
 }
@@ -0,0 +1,160 @@
+package com.example.eksamensprojekt.controller;
+
+import com.example.eksamensprojekt.model.Task;
+import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.model.TimeEntryImportResult;
+import com.example.eksamensprojekt.model.Timesheet;
+import com.example.eksamensprojekt.service.TimeEntryImportService;
+import com.example.eksamensprojekt.service.TimesheetService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TimeEntryController.class)
+public class TimeEntryControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private TimeEntryImportService timeEntryImportService;
+
+    @MockitoBean
+    private TimesheetService timesheetService;
+
+    private MockHttpSession session;
+
+    @BeforeEach
+    void setUp() {
+        session = new MockHttpSession();
+        session.setAttribute("userId", 1);
+    }
+
+    @Test
+    void shouldRedirectToLoginWhenNotLoggedIn() throws Exception {
+        mockMvc.perform(get("/time_entries/import"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/login"));
+    }
+
+    @Test
+    void shouldImportCsvFile() throws Exception {
+        TimeEntryImportResult result = new TimeEntryImportResult();
+        result.addImported(1);
+        when(timeEntryImportService.importCsv(any(), eq(1))).thenReturn(result);
+
+        MockMultipartFile file = new MockMultipartFile("file", "timer.csv", "text/csv",
+                "task_id,user_id,work_date,hours_worked,description\n1,1,2025-03-03,2,Import\n".getBytes());
+
+        mockMvc.perform(multipart("/time_entries/import").file(file).session(session))
+                .andExpect(status().isOk())
+                .andExpect(view().name("time_entry_import"))
+                .andExpect(model().attribute("result", result));
+
+        verify(timeEntryImportService).importCsv(any(), eq(1));
+        verify(timeEntryImportService, never()).importJson(any(), anyInt());
+    }
+
+    @Test
+    void shouldImportJsonFile() throws Exception {
+        when(timeEntryImportService.importJson(any(), eq(1))).thenReturn(new TimeEntryImportResult());
+
+        MockMultipartFile file = new MockMultipartFile("file", "timer.json", "application/json", "[]".getBytes());
+
+        mockMvc.perform(multipart("/time_entries/import").file(file).session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attributeExists("result"));
+
+        verify(timeEntryImportService).importJson(any(), eq(1));
+    }
+
+    @Test
+    void shouldShowErrorWhenFileCanNotBeRead() throws Exception {
+        when(timeEntryImportService.importCsv(any(), eq(1))).thenThrow(new IllegalArgumentException("Filen mangler kolonnerne task_id."));
+
+        MockMultipartFile file = new MockMultipartFile("file", "timer.csv", "text/csv", "forkert\n".getBytes());
+
+        mockMvc.perform(multipart("/time_entries/import").file(file).session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("importError", "Filen mangler kolonnerne task_id."))
+                .andExpect(model().attributeDoesNotExist("result"));
+    }
+
+    @Test
+    void shouldShowTimesheetForWeek() throws Exception {
+        Task task = new Task();
+        task.setTaskId(1);
+        task.setTitle("Design Mockups");
+        Timesheet timesheet = new Timesheet(LocalDate.of(2025, 2, 3), List.of(task),
+                List.of(new TimeEntry(1, 1, 1, null, LocalDate.of(2025, 2, 4), 2.5, "Mockups")));
+        when(timesheetService.getTimesheet(1, LocalDate.of(2025, 2, 5))).thenReturn(timesheet);
+
+        mockMvc.perform(get("/time_entries/timesheet").session(session).param("week", "2025-02-05"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("timesheet"))
+                .andExpect(model().attribute("timesheet", timesheet))
+                .andExpect(model().attribute("previousWeek", LocalDate.of(2025, 1, 27)))
+                .andExpect(model().attribute("nextWeek", LocalDate.of(2025, 2, 10)));
+    }
+
+    @Test
+    void shouldSaveFilledTimesheetCellsInOneCall() throws Exception {
+        when(timesheetService.saveTimesheet(eq(1), any())).thenReturn(List.of());
+
+        mockMvc.perform(post("/time_entries/timesheet")
+                        .session(session)
+                        .param("weekStart", "2025-02-03")
+                        .param("hours_1_0", "2")
+                        .param("hours_1_1", "")
+                        .param("hours_1_2", "1,5")
+                        .param("hours_13_4", "3")
+                        .param("description_1", "Mockups")
+                        .param("description_13", "Forside"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/time_entries/timesheet?week=2025-02-03"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TimeEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(timesheetService).saveTimesheet(eq(1), captor.capture());
+
+        List<TimeEntry> entries = captor.getValue();
+        assertThat(entries).extracting(TimeEntry::getTaskId).containsExactly(1, 1, 13);
+        assertThat(entries).extracting(TimeEntry::getWorkDate)
+                .containsExactly(LocalDate.of(2025, 2, 3), LocalDate.of(2025, 2, 5), LocalDate.of(2025, 2, 7));
+        assertThat(entries).extracting(TimeEntry::getHoursWorked).containsExactly(2.0, 1.5, 3.0);
+        assertThat(entries).extracting(TimeEntry::getUserId).containsOnly(1);
+    }
+
+    @Test
+    void shouldShowTimesheetAgainWhenSavingFails() throws Exception {
+        when(timesheetService.saveTimesheet(eq(1), any())).thenReturn(List.of("Du kan ikke registrere timer på opgave 11."));
+        when(timesheetService.getTimesheet(1, LocalDate.of(2025, 2, 3)))
+                .thenReturn(new Timesheet(LocalDate.of(2025, 2, 3), List.of(), List.of()));
+
+        mockMvc.perform(post("/time_entries/timesheet")
+                        .session(session)
+                        .param("weekStart", "2025-02-03")
+                        .param("hours_11_0", "2")
+                        .param("description_11", "Arkitektur"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("timesheet"))
+                .andExpect(model().attribute("errors", List.of("Du kan ikke registrere timer på opgave 11.")));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.eksamensprojekt.controller;
 
 import com.example.eksamensprojekt.model.User;
+import com.example.eksamensprojekt.model.UserSummary;
 import com.example.eksamensprojekt.service.UserService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +14,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.servlet.FlashMap;
 
+import java.util.List;
+
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.*;
@@ -233,6 +236,34 @@ class UserControllerTest {
         verify(userService, never()).registerUser(any());
     }
 
+    @Test
+    void searchUsers_ShouldReturnMatchesAsJson() throws Exception {
+        // Arrange
+        session.setAttribute("userId", 1);
+        when(userService.searchUsers("an", 10))
+                .thenReturn(List.of(new UserSummary(1, "anna@example.dk", "Anna Jensen", "Teamleder")));
+
+        // Act and Assert
+        mockMvc.perform(get("/users/search")
+                        .param("q", "an")
+                        .session(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value("anna@example.dk"))
+                .andExpect(jsonPath("$[0].passwordHash").doesNotExist());
+
+        verify(userService).searchUsers("an", 10);
+    }
+
+    @Test
+    void searchUsers_ShouldRejectWhenNotLoggedIn() throws Exception {
+        mockMvc.perform(get("/users/search")
+                        .param("q", "an")
+                        .session(session))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(userService);
+    }
+
     @Test
     void shouldShowUserAdminPageWhenLoggedIn() throws Exception {
         // Arrange
@@ -1,8 +1,12 @@
 package com.example.eksamensprojekt.model;
 
+import com.example.eksamensprojekt.utils.DateUtil;
+import com.example.eksamensprojekt.utils.WorkingDayCalendar;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -10,6 +14,12 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class TaskTest {
 
+    // Spring tests load the holidays into the shared calendar, so count weekends only here
+    @BeforeEach
+    void useWeekendsOnly() {
+        DateUtil.setCalendar(WorkingDayCalendar.WEEKENDS_ONLY);
+    }
+
     @Test
     void getEstimatedHours() {
         Task standaloneTask = new Task();
@@ -167,4 +177,73 @@ class TaskTest {
         assertEquals(3.0, map.get(LocalDate.of(2025, 12, 1)));
         assertEquals(3.0, map.get(LocalDate.of(2025, 12, 2)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void totalsShouldBeRecomputedWhenSubtaskChanges() {
+        Task leaf = new Task();
+        leaf.setEstimatedHours(2.0);
+        leaf.setActualHours(1.0);
+
+        Task sub = new Task();
+        sub.setSubTasks(new ArrayList<>(List.of(leaf)));
+
+        Task parent = new Task();
+        parent.setActualHours(3.0);
+        parent.setSubTasks(List.of(sub));
+
+        assertEquals(2.0, parent.getEstimatedHours());
+        assertEquals(4.0, parent.getActualHours());
+
+        // a change deep in the tree must clear the cached totals of every ancestor
+        leaf.setEstimatedHours(5.0);
+        Task added = new Task();
+        added.setActualHours(2.0);
+        sub.addSubTask(added);
+
+        assertEquals(5.0, parent.getEstimatedHours());
+        assertEquals(6.0, parent.getActualHours());
+    }
+
+    @Test
+    void projectTotalsShouldBeRecomputedWhenTaskChanges() {
+        Task task = new Task();
+        task.setEstimatedHours(10.0);
+
+        Project subProject = new Project();
+        subProject.setTasks(List.of(task));
+
+        Project project = new Project();
+        project.setStartDate(LocalDate.of(2025, 12, 1)); // Monday
+        project.setEndDate(LocalDate.of(2025, 12, 5));   // Friday
+        project.addSubProject(subProject);
+
+        assertEquals(10.0, project.getEstimatedHours());
+        assertEquals(2.0, project.getAvgDailyEstimatedHours());
+
+        task.setEstimatedHours(20.0);
+
+        assertEquals(20.0, project.getEstimatedHours());
+        assertEquals(4.0, project.getAvgDailyEstimatedHours());
+    }
+
+    @Test
+    void distributedHoursShouldSkipClosedDays() {
+        Task task = new Task();
+        task.setEstimatedHours(8.0);
+        task.setStartDate(LocalDate.of(2025, 12, 22)); // Monday
+        task.setEndDate(LocalDate.of(2025, 12, 28));   // Sunday
+
+        // Christmas Eve to Boxing Day are closed
+        DateUtil.setCalendar(new WorkingDayCalendar(List.of(
+                LocalDate.of(2025, 12, 24), LocalDate.of(2025, 12, 25), LocalDate.of(2025, 12, 26))));
+        try {
+            Map<LocalDate, Double> map = task.getDistributedTaskHours();
+
+            assertEquals(2, task.getBusinessDays());
+            assertEquals(List.of(LocalDate.of(2025, 12, 22), LocalDate.of(2025, 12, 23)), List.copyOf(map.keySet()));
+            assertEquals(4.0, map.get(LocalDate.of(2025, 12, 22)));
+        } finally {
+            DateUtil.setCalendar(WorkingDayCalendar.WEEKENDS_ONLY);
+        }
+    }
+}
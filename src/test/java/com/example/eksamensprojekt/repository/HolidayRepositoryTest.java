@@ -0,0 +1,29 @@
+package com.example.eksamensprojekt.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "classpath:h2init.sql", executionPhase = BEFORE_TEST_METHOD)
+class HolidayRepositoryTest {
+
+    @Autowired
+    private HolidayRepository holidayRepository;
+
+    @Test
+    void shouldGetHolidayDatesInOrder() {
+        assertThat(holidayRepository.getHolidayDates()).containsExactly(
+                LocalDate.of(2025, 12, 24),
+                LocalDate.of(2025, 12, 25),
+                LocalDate.of(2025, 12, 26));
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.eksamensprojekt.repository;
 
+import com.example.eksamensprojekt.model.EffectivePermission;
 import com.example.eksamensprojekt.model.Project;
+import com.example.eksamensprojekt.model.ProjectMember;
 import com.example.eksamensprojekt.model.ProjectRole;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +12,7 @@ import org.springframework.test.context.jdbc.Sql;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
@@ -96,6 +99,24 @@ class ProjectRepositoryTest {
         assertThat(subProjects).isEmpty();
     }
 
+    @Test
+    void shouldGetProjectSubtree(){
+        int projectId = 1;
+        List<Project> subtree = projectRepository.getProjectSubtree(projectId);
+
+        assertThat(subtree).isNotNull();
+        assertThat(subtree).extracting(Project::getProjectId).containsExactly(1, 3);
+    }
+
+    @Test
+    void shouldGetNoProjectSubtree(){
+        int projectId = 999999;
+        List<Project> subtree = projectRepository.getProjectSubtree(projectId);
+
+        assertThat(subtree).isNotNull();
+        assertThat(subtree).isEmpty();
+    }
+
     @Test
     void shouldCreateProject(){
         int ownerId = 1;
@@ -153,6 +174,117 @@ class ProjectRepositoryTest {
         assertThat(project.getEndDate()).isEqualTo(LocalDate.of(2026, 2, 1));
     }
 
+    @Test
+    void shouldMaintainClosureOnCreateSubProject(){
+        Project subProject = new Project();
+        subProject.setOwnerId(1);
+        subProject.setParentProjectId(3); // 3 is a subproject of 1
+        subProject.setTitle("Test closure");
+        subProject.setStartDate(LocalDate.of(2026, 1, 1));
+        subProject.setEndDate(LocalDate.of(2026, 2, 1));
+
+        int projectId = projectRepository.createProject(subProject);
+
+        assertThat(projectRepository.isDescendantOf(projectId, 3)).isTrue();
+        assertThat(projectRepository.isDescendantOf(projectId, 1)).isTrue();
+        assertThat(projectRepository.getProjectSubtree(1)).extracting(Project::getProjectId).contains(projectId);
+        assertThat(projectRepository.countProjectClosureDrift()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldMoveProjectAndMaintainClosure(){
+        int projectId = 1; // has subproject 3
+        int newParentProjectId = 5;
+
+        int rowsAffected = projectRepository.moveProject(projectId, newParentProjectId);
+
+        assertThat(rowsAffected).isEqualTo(1);
+        assertThat(projectRepository.getProject(projectId).getParentProjectId()).isEqualTo(5);
+        assertThat(projectRepository.isDescendantOf(3, 5)).isTrue();
+        assertThat(projectRepository.countProjectClosureDrift()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldRebuildProjectClosure(){
+        int rowsInserted = projectRepository.rebuildProjectClosure();
+
+        assertThat(rowsInserted).isEqualTo(7); // 5 projects with themselves and 2 subprojects with their parent
+        assertThat(projectRepository.countProjectClosureDrift()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldGetMoveTargets(){
+        int projectId = 3; // parent is 1, no siblings or children
+        List<Project> targets = projectRepository.getMoveTargets(projectId);
+
+        assertThat(targets).extracting(Project::getProjectId).containsExactly(1);
+    }
+
+    @Test
+    void shouldHaveInheritedAccessToSubProject(){
+        int projectId = 3;
+        int userId = 2; // assigned to parent project 1 only
+
+        EffectivePermission permission = projectRepository.getEffectivePermission(projectId, userId);
+
+        assertThat(permission.hasAccess()).isTrue();
+        assertThat(permission.getRole().getRole()).isEqualTo("EDIT"); // inherited from project 1
+        assertThat(projectRepository.getEffectivePermission(projectId, 999999).hasAccess()).isFalse();
+    }
+
+    @Test
+    void shouldPreferDirectRoleOverInheritedRole(){
+        int projectId = 3;
+        int userId = 4; // READ_ONLY on parent project 1, EDIT on project 3
+
+        EffectivePermission permission = projectRepository.getEffectivePermission(projectId, userId);
+
+        assertThat(permission.hasAccess()).isTrue();
+        assertThat(permission.getRole().getRole()).isEqualTo("EDIT");
+    }
+
+    @Test
+    void shouldHaveNoAccessToUnrelatedProject(){
+        int projectId = 2;
+        int userId = 4;
+
+        EffectivePermission permission = projectRepository.getEffectivePermission(projectId, userId);
+
+        assertThat(permission.hasAccess()).isFalse();
+        assertThat(permission.getRole()).isNull();
+    }
+
+    @Test
+    void shouldGetEffectivePermissionsForManyProjects(){
+        int userId = 4; // READ_ONLY on project 1, EDIT on project 3, nothing on project 2
+
+        Map<Integer, EffectivePermission> permissions = projectRepository.getEffectivePermissions(List.of(1, 2, 3), userId);
+
+        assertThat(permissions).containsOnlyKeys(1, 3);
+        assertThat(permissions.get(1).getRole().getRole()).isEqualTo("READ_ONLY");
+        assertThat(permissions.get(3).getRole().getRole()).isEqualTo("EDIT");
+        assertThat(projectRepository.getEffectivePermissions(List.of(), userId)).isEmpty();
+    }
+
+    @Test
+    void shouldGetProjectRoster(){
+        int projectId = 3; // owner 1 and user 4 are assigned directly, users 2 and 4 on parent project 1
+
+        List<ProjectMember> roster = projectRepository.getProjectRoster(projectId);
+
+        assertThat(roster).extracting(m -> m.getUser().getUserId()).containsExactlyInAnyOrder(1, 2, 4);
+
+        ProjectMember inherited = roster.stream().filter(m -> m.getUser().getUserId() == 2).findFirst().orElseThrow();
+        assertThat(inherited.isDirect()).isFalse();
+        assertThat(inherited.getInheritedRole().getRole()).isEqualTo("EDIT");
+        assertThat(inherited.getInheritedFromProjectId()).isEqualTo(1);
+
+        ProjectMember both = roster.stream().filter(m -> m.getUser().getUserId() == 4).findFirst().orElseThrow();
+        assertThat(both.getDirectRole().getRole()).isEqualTo("EDIT");
+        assertThat(both.getInheritedRole().getRole()).isEqualTo("READ_ONLY");
+        assertThat(both.getUser().getPasswordHash()).isNull();
+    }
+
     @Test
     void shouldGetProjectUserRole(){
         int projectId = 1;
@@ -208,4 +340,24 @@ class ProjectRepositoryTest {
 
         assertThat(isAssigned).isEqualTo(false);
     }
+
+    @Test
+    void shouldBumpSubtreeVersionOfProjectAndAncestors(){
+        projectRepository.bumpSubtreeVersions(List.of(3)); //3 is a subproject of 1
+
+        assertThat(projectRepository.getProject(3).getSubtreeVersion()).isEqualTo(1);
+        assertThat(projectRepository.getProject(1).getSubtreeVersion()).isEqualTo(1);
+        assertThat(projectRepository.getProject(2).getSubtreeVersion()).isZero();
+    }
+
+    @Test
+    void shouldBumpHoursVersionWithoutTouchingAncestors(){
+        projectRepository.bumpHoursVersions(List.of(3)); //3 is a subproject of 1
+        projectRepository.bumpHoursVersionForTask(1); //task 1 is in project 1
+
+        assertThat(projectRepository.getProject(1).getSubtreeVersion()).isZero();
+        assertThat(projectRepository.getSubtreeHoursVersion(1)).isEqualTo(2); //its own and the one of 3
+        assertThat(projectRepository.getSubtreeHoursVersion(3)).isEqualTo(1);
+        assertThat(projectRepository.getSubtreeHoursVersion(2)).isZero();
+    }
 }
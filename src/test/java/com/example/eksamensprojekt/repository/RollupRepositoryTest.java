@@ -0,0 +1,97 @@
+package com.example.eksamensprojekt.repository;
+
+import com.example.eksamensprojekt.model.HoursRollup;
+import com.example.eksamensprojekt.model.Project;
+import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.service.ProjectService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "classpath:h2init.sql", executionPhase = BEFORE_TEST_METHOD)
+public class RollupRepositoryTest {
+    @Autowired
+    private RollupRepository rollupRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldHaveSeededRollups(){
+        HoursRollup taskRollup = taskRepository.getTask(4).getRollup(); //4 has subtasks 5 and 6, 5 has subtask 7
+        assertThat(taskRollup.getEstimatedHours()).isEqualTo(23); //leaves 6 and 7
+        assertThat(taskRollup.getActualHours()).isEqualTo(53); //20 + 10 + 15 + 8
+
+        HoursRollup projectRollup = projectRepository.getProject(1).getRollup(); //includes subproject 3
+        assertThat(projectRollup.getEstimatedHours()).isEqualTo(98);
+        assertThat(projectRollup.getActualHours()).isEqualTo(137);
+
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+    }
+
+    @Test
+    void shouldRefreshAncestorsWhenTimeIsLogged(){
+        taskRepository.createTimeEntry(new TimeEntry(0, 7, 2, null, LocalDate.of(2025, 2, 24), 2, "Mere dropdown"));
+        rollupRepository.refreshRollupsForTask(7);
+
+        assertThat(taskRepository.getTask(4).getRollup().getActualHours()).isEqualTo(55);
+        assertThat(projectRepository.getProject(1).getRollup().getActualHours()).isEqualTo(139);
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+    }
+
+    @Test
+    void shouldCreateRollupForNewProject(){
+        int projectId = projectService.createProject(new Project(0, 1, 1, "Tomt delprojekt", "",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 6, 30), new ArrayList<>(), new ArrayList<>()));
+
+        HoursRollup rollup = projectRepository.getProject(projectId).getRollup();
+        assertThat(rollup.getEstimatedHours()).isZero();
+        assertThat(rollup.getActualHours()).isZero();
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+    }
+
+    @Test
+    void shouldRefreshOldAncestorsWhenProjectIsMoved(){
+        projectRepository.moveProject(3, null);
+        rollupRepository.refreshProjectRollups(List.of(1, 3)); //the old parent and the moved project
+
+        HoursRollup projectRollup = projectRepository.getProject(1).getRollup();
+        assertThat(projectRollup.getEstimatedHours()).isEqualTo(68);
+        assertThat(projectRollup.getActualHours()).isEqualTo(125);
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+    }
+
+    @Test
+    void shouldRebuildRollupsAfterDrift(){
+        jdbcTemplate.update("UPDATE task_rollup SET actual_hours = 0 WHERE task_id = 4");
+        jdbcTemplate.update("DELETE FROM project_rollup WHERE project_id = 5");
+
+        assertThat(rollupRepository.countRollupDrift()).isEqualTo(2);
+
+        rollupRepository.rebuildRollups();
+
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+        assertThat(taskRepository.getTask(4).getRollup().getActualHours()).isEqualTo(53);
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.eksamensprojekt.repository;
 
 import com.example.eksamensprojekt.model.Task;
+import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.model.TimeEntryPage;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -11,6 +13,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 @SpringBootTest
@@ -79,6 +82,31 @@ public class TaskRepositoryTest {
         assertThat(subTasks).isEmpty();
     }
 
+    @Test
+    void shouldGetTasksByProjectIds(){
+        List<Task> tasks = taskRepository.getTasksByProjectIds(List.of(1, 3));
+
+        assertThat(tasks).isNotNull();
+        assertThat(tasks.size()).isEqualTo(11); // 10 tasks in project 1 and 1 task in project 3
+        assertThat(tasks).extracting(Task::getProjectId).containsOnly(1, 3);
+    }
+
+    @Test
+    void shouldGetNoTasksByEmptyProjectIds(){
+        List<Task> tasks = taskRepository.getTasksByProjectIds(List.of());
+
+        assertThat(tasks).isNotNull();
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    void shouldGetTaskSubtree(){
+        int taskId = 4;
+        List<Task> subtree = taskRepository.getTaskSubtree(taskId);
+
+        assertThat(subtree).extracting(Task::getTaskId).containsExactly(4, 5, 6, 7);
+    }
+
     @Test
     void shouldCreateTask(){
         int projectId = 1;
@@ -157,6 +185,92 @@ public class TaskRepositoryTest {
         assertThat(taskToBeUpdated.getTitle()).isEqualTo("Updated task");
     }
 
+    @Test
+    void shouldAddClosureRowsForCreatedSubTask(){
+        Task testTask = new Task();
+        testTask.setParentTaskId(5);
+        testTask.setProjectId(1);
+        testTask.setTitle("Test task");
+        testTask.setStartDate(LocalDate.of(2026,1,1));
+        testTask.setEndDate(LocalDate.of(2026,2,1));
+        testTask.setEstimatedHours(1);
+
+        int taskId = taskRepository.createTask(testTask);
+
+        assertThat(taskId).isEqualTo(19);
+        assertThat(taskRepository.isDescendantOf(taskId, 5)).isTrue();
+        assertThat(taskRepository.isDescendantOf(taskId, 4)).isTrue(); //4 is the parent of 5
+        assertThat(taskRepository.getTaskSubtree(4)).extracting(Task::getTaskId).contains(19);
+        assertThat(taskRepository.countTaskClosureDrift()).isZero();
+    }
+
+    @Test
+    void shouldMoveClosureRowsWhenParentChanges(){
+        Task task = taskRepository.getTask(5); //5 has subtask 7 and is a subtask of 4
+
+        task.setParentTaskId(1);
+        taskRepository.updateTask(task);
+
+        assertThat(taskRepository.isDescendantOf(7, 1)).isTrue();
+        assertThat(taskRepository.isDescendantOf(7, 4)).isFalse();
+        assertThat(taskRepository.getTaskSubtree(4)).extracting(Task::getTaskId).containsExactly(4, 6);
+        assertThat(taskRepository.countTaskClosureDrift()).isZero();
+    }
+
+    @Test
+    void shouldNotBeDescendantOfUnrelatedTask(){
+        assertThat(taskRepository.isDescendantOf(2, 4)).isFalse();
+        assertThat(taskRepository.isDescendantOf(4, 7)).isFalse(); //ancestor is not a descendant
+    }
+
+    @Test
+    void shouldMoveTaskSubtreeToProject(){
+        int tasksMoved = taskRepository.moveTaskSubtreeToProject(4, 2);
+
+        assertThat(tasksMoved).isEqualTo(4); //4 and its subtasks 5, 6 and 7
+        assertThat(taskRepository.getTaskSubtree(4)).extracting(Task::getProjectId).containsOnly(2);
+        assertThat(taskRepository.getTask(1).getProjectId()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDetachMovedSubTaskFromParent(){
+        int tasksMoved = taskRepository.moveTaskSubtreeToProject(5, 2); //5 is a subtask of 4 and has subtask 7
+
+        assertThat(tasksMoved).isEqualTo(2);
+        assertThat(taskRepository.getTask(5).getParentTaskId()).isNull();
+        assertThat(taskRepository.getTask(7).getProjectId()).isEqualTo(2);
+        assertThat(taskRepository.getTaskSubtree(4)).extracting(Task::getTaskId).containsExactly(4, 6);
+        assertThat(taskRepository.countTaskClosureDrift()).isZero();
+    }
+
+    @Test
+    void shouldRebuildTaskClosure(){
+        int rows = taskRepository.rebuildTaskClosure();
+
+        assertThat(rows).isEqualTo(27); //18 tasks with themselves and 9 ancestor paths
+        assertThat(taskRepository.countTaskClosureDrift()).isZero();
+    }
+
+    @Test
+    void shouldAddLoggedHoursToSummary(){
+        assertThat(taskRepository.getTask(1).getActualHours()).isEqualTo(20); //8 + 12 from h2init
+
+        taskRepository.createTimeEntry(new TimeEntry(0, 1, 1, null, LocalDate.of(2025, 1, 7), 2.5, "Flere mockups"));
+        taskRepository.createTimeEntry(new TimeEntry(0, 11, 1, null, LocalDate.of(2025, 2, 3), 3, "Første time")); //11 has no time entries
+
+        assertThat(taskRepository.getTask(1).getActualHours()).isEqualTo(22.5);
+        assertThat(taskRepository.getTask(11).getActualHours()).isEqualTo(3);
+        assertThat(taskRepository.countHoursSummaryDrift()).isZero();
+    }
+
+    @Test
+    void shouldRebuildHoursSummary(){
+        int rows = taskRepository.rebuildHoursSummary();
+
+        assertThat(rows).isEqualTo(13); //13 tasks have time entries in h2init
+        assertThat(taskRepository.countHoursSummaryDrift()).isZero();
+    }
+
     @Test
     void shouldDeleteTask(){
         int taskToBeDeleted = 1; //Id of task to be deleted
@@ -172,4 +286,97 @@ public class TaskRepositoryTest {
         int taskDeleted = taskRepository.deleteTask(taskToBeDeleted);
         assertThat(taskDeleted).isEqualTo(0);
     }
+
+    @Test
+    void shouldGetTimeEntriesInDateRange(){
+        List<TimeEntry> taskEntries = taskRepository.getTimeEntriesByTaskId(1, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+        assertThat(taskEntries).hasSize(1);
+        assertThat(taskEntries.get(0).getHoursWorked()).isEqualTo(8);
+        assertThat(taskEntries.get(0).getWorkDate()).isEqualTo(LocalDate.of(2025, 1, 6));
+
+        //project 1 includes subproject 3, but not the entries on project 4 in the same month
+        List<TimeEntry> projectEntries = taskRepository.getTimeEntriesByProjectSubtree(1, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28));
+        assertThat(projectEntries).extracting(TimeEntry::getTaskId).containsExactly(13, 1, 4, 5, 7);
+
+        List<TimeEntry> userEntries = taskRepository.getTimeEntriesByUserId(4, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+        assertThat(userEntries).extracting(TimeEntry::getTaskId).containsExactly(6, 10);
+    }
+
+    @Test
+    void shouldSumLoggedHoursPerDayForProjectSubtree(){
+        //project 1 has two entries in the window, on 2025-02-03 (task 13 in subproject 3) and 2025-02-10 (task 1)
+        double[] hours = taskRepository.getLoggedHoursPerDay(1, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 14));
+
+        assertThat(hours).hasSize(14);
+        assertThat(hours[2]).isEqualTo(12);
+        assertThat(hours[9]).isEqualTo(12);
+        assertThat(hours[0] + hours[1] + hours[3] + hours[13]).isZero();
+    }
+
+    @Test
+    void shouldPageTimeEntriesNewestFirst(){
+        //a second entry on 2025-02-10, so the page boundary falls between two entries on the same date
+        taskRepository.createTimeEntry(new TimeEntry(0, 1, 2, null, LocalDate.of(2025, 2, 10), 1.5, "Rettelser"));
+        assertThat(taskRepository.getTask(1).getTimeEntryCount()).isEqualTo(3);
+
+        TimeEntryPage first = taskRepository.getTimeEntryPage(1, null, null, null, null, 2);
+        assertThat(first.getEntries()).extracting(TimeEntry::getHoursWorked).containsExactly(1.5, 12.0);
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(first.getNextBeforeDate()).isEqualTo(LocalDate.of(2025, 2, 10));
+
+        TimeEntryPage second = taskRepository.getTimeEntryPage(1, null, null, first.getNextBeforeDate(), first.getNextBeforeId(), 2);
+        assertThat(second.getEntries()).extracting(TimeEntry::getHoursWorked).containsExactly(8.0);
+        assertThat(second.isHasNext()).isFalse();
+
+        //the date window applies to every page
+        TimeEntryPage february = taskRepository.getTimeEntryPage(1, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28), null, null, 5);
+        assertThat(february.getEntries()).hasSize(2);
+        assertThat(february.isHasNext()).isFalse();
+    }
+
+    @Test
+    void shouldBatchInsertTimeEntriesAndUpdateSummary(){
+        taskRepository.createTimeEntries(List.of(
+                new TimeEntry(0, 1, 1, null, LocalDate.of(2025, 3, 3), 2, "Import 1"),
+                new TimeEntry(0, 1, 2, null, LocalDate.of(2025, 3, 4), 3, "Import 2"),
+                new TimeEntry(0, 11, 1, null, LocalDate.of(2025, 3, 5), 4, "Import 3"))); //11 has no time entries
+
+        assertThat(taskRepository.getTask(1).getActualHours()).isEqualTo(25); //20 from h2init
+        assertThat(taskRepository.getTask(1).getTimeEntryCount()).isEqualTo(4);
+        assertThat(taskRepository.getTask(11).getActualHours()).isEqualTo(4);
+        assertThat(taskRepository.countHoursSummaryDrift()).isZero();
+    }
+
+    @Test
+    void shouldGetProjectIdsOfTasks(){
+        //13 is in subproject 3, 999 does not exist
+        assertThat(taskRepository.getProjectIdsByTaskIds(List.of(1, 13, 999)))
+                .containsOnlyKeys(1, 13)
+                .containsEntry(1, 1)
+                .containsEntry(13, 3);
+    }
+
+    @Test
+    void shouldGetTimesheetTasksForUser(){
+        //user 4 (Dan) is read-only on project 1 and edits subproject 3, and logged time on 13 (project 3) in that week
+        List<Task> tasks = taskRepository.getTimesheetTasks(4, LocalDate.of(2025, 2, 3), LocalDate.of(2025, 2, 9));
+        assertThat(tasks).extracting(Task::getTaskId).containsExactly(1, 13);
+
+        //user 3 (Carina) is only on project 2, and 11 and 12 do not run in January
+        assertThat(taskRepository.getTimesheetTasks(3, LocalDate.of(2025, 1, 6), LocalDate.of(2025, 1, 12))).isEmpty();
+    }
+
+    @Test
+    void shouldStreamProjectSubtreeRows(){
+        //project 1 and subproject 3 have tasks 1-10 and 13, and 12 time entries on them
+        List<Integer> taskIds = new ArrayList<>();
+        taskRepository.streamTasksByProjectSubtree(1, task -> taskIds.add(task.getTaskId()));
+        assertThat(taskIds).containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 13);
+
+        List<TimeEntry> entries = new ArrayList<>();
+        taskRepository.streamTimeEntriesByProjectSubtree(1, entries::add);
+        assertThat(entries).hasSize(12);
+        assertThat(entries.get(0).getWorkDate()).isEqualTo(LocalDate.of(2025, 1, 6));
+        assertThat(entries.get(0).getUserEmail()).isNotBlank();
+    }
 }
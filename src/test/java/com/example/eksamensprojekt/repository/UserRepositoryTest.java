@@ -1,6 +1,7 @@
 package com.example.eksamensprojekt.repository;
 
 import com.example.eksamensprojekt.model.User;
+import com.example.eksamensprojekt.model.UserSummary;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -75,6 +76,24 @@ class UserRepositoryTest {
         assertThat(blank).isNull();
     }
 
+    @Test
+    void shouldGetUserDirectoryWithoutPasswords(){
+        List<UserSummary> directory = userRepository.getUserDirectory();
+
+        assertThat(directory).hasSize(6);
+        assertThat(directory).extracting(UserSummary::getEmail).contains("anna@example.dk");
+    }
+
+    @Test
+    void shouldReturnIdOfRegisteredUser(){
+        User user = new User(0, "new@example.dk", "hash", "Ny Bruger", null, false);
+
+        int userId = userRepository.registerUser(user);
+
+        assertThat(userId).isEqualTo(7); //7 should be the new user id
+        assertThat(userRepository.getUserByUserId(userId).getEmail()).isEqualTo("new@example.dk");
+    }
+
     @Test
     void shouldReturn0CountByEmail(){
         //This test checks if an email is already taken.
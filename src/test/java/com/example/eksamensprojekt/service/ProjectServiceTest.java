@@ -0,0 +1,67 @@
+package com.example.eksamensprojekt.service;
+
+import com.example.eksamensprojekt.model.Project;
+import com.example.eksamensprojekt.utils.HourSeries;
+import com.example.eksamensprojekt.utils.TimeBucket;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "classpath:h2init.sql", executionPhase = BEFORE_TEST_METHOD)
+class ProjectServiceTest {
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private CalendarService calendarService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldCutHourSeriesToTheLongestWindowOfTheBucket(){
+        Project project = projectService.getProject(1);
+
+        HourSeries days = projectService.getHourSeries(project, TimeBucket.DAY,
+                LocalDate.of(2025, 1, 1), LocalDate.of(9999, 12, 31));
+        assertThat(days.size()).isEqualTo(730); //2025 and 2026
+        assertThat(days.getLabels().get(729)).isEqualTo("2026-12-31");
+
+        //Only an end was asked for, so the window keeps its end and starts 20 years before
+        HourSeries quarters = projectService.getHourSeries(project, TimeBucket.QUARTER,
+                null, LocalDate.of(9999, 12, 31));
+        assertThat(quarters.size()).isEqualTo(80);
+        assertThat(quarters.getLabels().get(0)).isEqualTo("9980-Q1");
+    }
+
+    @Test
+    void shouldNotServeCachedHourSeriesAfterTheCalendarIsReloaded(){
+        Project project = projectService.getProject(1);
+        LocalDate monday = LocalDate.of(2025, 1, 6);
+
+        HourSeries before = projectService.getHourSeries(project, TimeBucket.DAY, monday, monday.plusDays(4));
+        assertThat(before.getEstimatedHours()[1]).isPositive();
+
+        jdbcTemplate.update("INSERT INTO holiday (holiday_date, name) VALUES ('2025-01-07', 'Lukkedag')");
+        try {
+            calendarService.reloadCalendar();
+
+            //Same project and window, but the estimate no longer lands on the closed Tuesday
+            HourSeries after = projectService.getHourSeries(project, TimeBucket.DAY, monday, monday.plusDays(4));
+            assertThat(after.getEstimatedHours()[1]).isZero();
+        } finally {
+            jdbcTemplate.update("DELETE FROM holiday WHERE holiday_date = '2025-01-07'");
+            calendarService.reloadCalendar();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.eksamensprojekt.service;
+
+import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.repository.ProjectRepository;
+import com.example.eksamensprojekt.repository.RollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest(properties = "time-entries.write-behind.enabled=true")
+@ActiveProfiles("test")
+@Sql(scripts = "classpath:h2init.sql", executionPhase = BEFORE_TEST_METHOD)
+class TaskServiceTest {
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private RollupRepository rollupRepository;
+
+    @Test
+    void shouldStoreTimeEntryThroughTheWriteBehindBuffer(){
+        taskService.addTimeEntry(new TimeEntry(0, 7, 2, null, LocalDate.of(2025, 2, 25), 2, "Mere dropdown"));
+
+        //addTimeEntry returns once the batch holding the entry has been written
+        assertThat(projectRepository.getProject(1).getRollup().getActualHours()).isEqualTo(139);
+        assertThat(projectRepository.getSubtreeHoursVersion(1)).isEqualTo(1);
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+        assertThat(taskService.getTimeEntryBufferStats()).contains("written=1");
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.eksamensprojekt.service;
+
+import com.example.eksamensprojekt.model.TimeEntry;
+import com.example.eksamensprojekt.model.TimeEntryImportResult;
+import com.example.eksamensprojekt.repository.ProjectRepository;
+import com.example.eksamensprojekt.repository.RollupRepository;
+import com.example.eksamensprojekt.repository.TaskRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "classpath:h2init.sql", executionPhase = BEFORE_TEST_METHOD)
+class TimeEntryImportServiceTest {
+    @Autowired
+    private TimeEntryImportService importService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private RollupRepository rollupRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldImportValidCsvRowsAndRejectTheRest(){
+        String csv = """
+                task_id,user_id,work_date,hours_worked,description
+                1,1,2025-03-03,2,Gyldig
+                1,1,2025-03-04,0,Ingen timer
+                1,1,2025-03-05,1e12,For mange timer
+                1,1,2025-03-06,Infinity,Uendelig
+                999,1,2025-03-07,1,Ukendt opgave
+                11,1,2025-03-07,1,Andens projekt
+                1,3,2025-03-07,1,Ikke med i projektet
+                1,1,ikke-en-dato,1,Forkert dato
+                2,4,2025-03-08,1.5,Læseadgang er nok
+                1,1,2025-03-09,NaN,Ikke et tal
+                """;
+
+        //Anna (1) owns project 1, which holds tasks 1 and 2. Task 11 is in Bjørn's project 2
+        TimeEntryImportResult result = importService.importCsv(stream(csv), 1);
+
+        assertThat(result.getImportedCount()).isEqualTo(2);
+        Map<Integer, String> rejected = reasonsByRow(result);
+        assertThat(rejected.keySet()).containsExactly(3, 4, 5, 6, 7, 8, 9, 11);
+        assertThat(rejected.get(3)).startsWith("hoursWorked: ");
+        assertThat(rejected.get(4)).isEqualTo("hoursWorked: Registrerede timer kan ikke være mere end 24.");
+        assertThat(rejected.get(5)).isEqualTo("hoursWorked: Registrerede timer kan ikke være mere end 24.");
+        assertThat(rejected.get(6)).isEqualTo("Opgave 999 findes ikke.");
+        assertThat(rejected.get(7)).isEqualTo("Du har ikke adgang til projektet for opgave 11.");
+        assertThat(rejected.get(8)).isEqualTo("Bruger 3 har ikke adgang til projektet for opgave 1.");
+        assertThat(rejected.get(9)).startsWith("Rækken kunne ikke læses: ");
+        assertThat(rejected.get(11)).startsWith("hoursWorked: ");
+
+        assertThat(projectRepository.getProject(1).getRollup().getActualHours()).isEqualTo(140.5); //137 + 2 + 1.5
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+        assertThat(taskRepository.countHoursSummaryDrift()).isZero();
+    }
+
+    @Test
+    void shouldAcceptUsersWithAccessThroughAParentProject(){
+        String csv = """
+                task_id,user_id,work_date,hours_worked,description
+                13,2,2025-03-03,2,Arvet fra projekt 1
+                13,3,2025-03-04,1,Ingen adgang
+                13,4,2025-03-05,1,Direkte med
+                """;
+
+        //Task 13 is in project 3, below project 1. Bjørn (2) is only assigned to project 1, Carina (3) to neither
+        TimeEntryImportResult result = importService.importCsv(stream(csv), 1);
+
+        assertThat(result.getImportedCount()).isEqualTo(2);
+        Map<Integer, String> rejected = reasonsByRow(result);
+        assertThat(rejected).containsExactly(Map.entry(3, "Bruger 3 har ikke adgang til projektet for opgave 13."));
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+    }
+
+    @Test
+    void shouldImportAcrossBatchesAndRefreshTotalsPerBatch(){
+        StringBuilder csv = new StringBuilder("description,hours_worked,work_date,user_id,task_id\n");
+        for (int i = 0; i < 2500; i++) {
+            csv.append("Række ").append(i).append(",0.5,2025-04-01,2,2\n");
+        }
+        csv.append("Ukendt,1,2025-04-01,2,999\n"); //row 2502, in the third batch
+
+        TimeEntryImportResult result = importService.importCsv(stream(csv.toString()), 1);
+
+        assertThat(result.getImportedCount()).isEqualTo(2500);
+        assertThat(reasonsByRow(result).keySet()).containsExactly(2502);
+
+        Integer entries = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM time_entry WHERE task_id = 2", Integer.class);
+        assertThat(entries).isEqualTo(2501); //the seeded entry and the imported ones
+        assertThat(projectRepository.getProject(1).getRollup().getActualHours()).isEqualTo(1387); //137 + 2500 * 0.5
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+        assertThat(taskRepository.countHoursSummaryDrift()).isZero();
+
+        //The hours version is bumped once per batch of 1000, not once per entry
+        assertThat(projectRepository.getSubtreeHoursVersion(1)).isEqualTo(3);
+        assertThat(projectRepository.getSubtreeHoursVersion(2)).isZero();
+    }
+
+    @Test
+    void shouldRejectJsonRowsThatCantBeRead(){
+        String json = """
+                [
+                  {"taskId": 1, "userId": 1, "workDate": "2025-03-03", "hoursWorked": 3, "description": "Gyldig"},
+                  {"taskId": 1, "userId": 1, "workDate": "2025-03-04", "hoursWorked": "mange", "description": "Tekst"},
+                  {"taskId": 1, "userId": 1, "workDate": "2025-03-05", "hoursWorked": 1e12, "description": "For mange timer"},
+                  {"taskId": 1, "userId": 1, "workDate": "2025-03-06", "hoursWorked": 4, "description": ""}
+                ]
+                """;
+
+        TimeEntryImportResult result = importService.importJson(stream(json), 1);
+
+        assertThat(result.getImportedCount()).isEqualTo(1);
+        Map<Integer, String> rejected = reasonsByRow(result);
+        assertThat(rejected.keySet()).containsExactly(2, 3, 4);
+        assertThat(rejected.get(2)).startsWith("Rækken kunne ikke læses: ");
+        assertThat(rejected.get(3)).isEqualTo("hoursWorked: Registrerede timer kan ikke være mere end 24.");
+        assertThat(rejected.get(4)).isEqualTo("description: Beskrivelse kan ikke være tom.");
+        assertThat(rollupRepository.countRollupDrift()).isZero();
+    }
+
+    @Test
+    void shouldImportItsOwnExportAgain(){
+        List<String> descriptions = List.of("Første linje\nAnden linje, med \"citat\"", "=HYPERLINK(\"http://x\")", "-3 timer");
+        for (String description : descriptions) {
+            taskRepository.createTimeEntry(new TimeEntry(0, 13, 1, null, LocalDate.of(2025, 2, 4), 1, description));
+        }
+
+        //Project 3 holds task 13, with one seeded entry
+        StringWriter export = new StringWriter();
+        exportService.writeTimeEntriesCsv(3, export);
+        assertThat(export.toString()).contains("'=HYPERLINK(").contains("'-3 timer");
+
+        TimeEntryImportResult result = importService.importCsv(stream(export.toString()), 1);
+
+        assertThat(result.getRejectedRows()).isEmpty();
+        assertThat(result.getImportedCount()).isEqualTo(4);
+        List<String> imported = jdbcTemplate.queryForList(
+                "SELECT description FROM time_entry WHERE task_id = 13 AND user_id = 1 ORDER BY time_entry_id", String.class);
+        assertThat(imported.subList(3, 6)).isEqualTo(descriptions);
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<Integer, String> reasonsByRow(TimeEntryImportResult result) {
+        return result.getRejectedRows().stream()
+                .collect(Collectors.toMap(TimeEntryImportResult.RejectedRow::getRow,
+                        TimeEntryImportResult.RejectedRow::getReason,
+                        (a, b) -> a,
+                        TreeMap::new));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.eksamensprojekt.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BusinessDayIndexTest {
+
+    @Test
+    void shouldMatchDayByDayCountInsideAndOutsideIndexedYears() {
+        BusinessDayIndex index = new BusinessDayIndex(2020, 2030, DateUtil::isWeekday);
+        Random random = new Random(7);
+        LocalDate base = LocalDate.of(2015, 1, 1);
+
+        for (int i = 0; i < 5_000; i++) {
+            LocalDate startDate = base.plusDays(random.nextInt(7_000));
+            LocalDate endDate = startDate.plusDays(random.nextInt(1_500) - 5);
+
+            assertEquals(DateUtilTest.countByLoop(startDate, endDate), index.businessDaysBetween(startDate, endDate),
+                    startDate + " -> " + endDate);
+        }
+    }
+
+    @Test
+    void shouldUseThePredicateForWhichDaysCount() {
+        LocalDate holiday = LocalDate.of(2025, 12, 25); // Thursday
+        BusinessDayIndex index = new BusinessDayIndex(2025, 2025,
+                day -> DateUtil.isWeekday(day) && day != holiday.toEpochDay());
+
+        assertFalse(index.isBusinessDay(holiday));
+        assertEquals(4, index.businessDaysBetween(LocalDate.of(2025, 12, 22), LocalDate.of(2025, 12, 28)));
+    }
+}
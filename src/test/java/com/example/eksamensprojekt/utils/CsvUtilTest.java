@@ -0,0 +1,49 @@
+package com.example.eksamensprojekt.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvUtilTest {
+
+    @Test
+    void shouldSplitOnCommas() {
+        assertEquals(List.of("1", "2", "", "tekst"), CsvUtil.parseLine("1,2,,tekst"));
+    }
+
+    @Test
+    void shouldKeepCommasAndQuotesInQuotedFields() {
+        assertEquals(List.of("1", "Møde, \"kort\" opfølgning"), CsvUtil.parseLine("1,\"Møde, \"\"kort\"\" opfølgning\""));
+    }
+
+    @Test
+    void shouldRejectUnterminatedQuote() {
+        assertThrows(IllegalArgumentException.class, () -> CsvUtil.parseLine("1,\"ikke afsluttet"));
+    }
+
+    @Test
+    void shouldQuoteValuesThatNeedIt() {
+        assertEquals("1,,\"Møde, \"\"kort\"\"\",2.5\n", CsvUtil.formatLine(1, null, "Møde, \"kort\"", 2.5));
+    }
+
+    @Test
+    void shouldReadBackFormattedLine() {
+        String line = CsvUtil.formatLine("a,b", "c\"d", "e");
+        assertEquals(List.of("a,b", "c\"d", "e"), CsvUtil.parseLine(line.strip()));
+    }
+
+    @Test
+    void shouldGuardTextThatLooksLikeAFormula() {
+        assertEquals("'=SUM(A1:A9),'@kunde,-2.5,'-1\n", CsvUtil.formatLine("=SUM(A1:A9)", "@kunde", -2.5, "-1"));
+        assertEquals("=SUM(A1:A9)", CsvUtil.unguardText("'=SUM(A1:A9)"));
+        assertEquals("'citat'", CsvUtil.unguardText("'citat'"));
+    }
+
+    @Test
+    void shouldKnowWhenAQuotedFieldSpansLines() {
+        assertFalse(CsvUtil.isComplete("1,\"første linje"));
+        assertTrue(CsvUtil.isComplete("1,\"første linje\nanden \"\"linje\"\"\""));
+    }
+}
@@ -1,13 +1,22 @@
 package com.example.eksamensprojekt.utils;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class DateUtilTest {
 
+    // The expected counts skip weekends only, and a Spring test may have loaded the seeded holidays
+    @BeforeEach
+    void useWeekendsOnly() {
+        DateUtil.setCalendar(WorkingDayCalendar.WEEKENDS_ONLY);
+    }
+
     @Test
     void businessDaysShouldEqualTwo() {
         LocalDate startDate = LocalDate.of(2025, 12, 1);
@@ -31,4 +40,39 @@ class DateUtilTest {
 
         assertEquals(10, DateUtil.businessDaysBetween(startDate,endDate));
     }
-}
\ No newline at end of file
+
+    @Test
+    void businessDaysShouldBeZeroWhenEndIsBeforeStart() {
+        assertEquals(0, DateUtil.businessDaysBetween(LocalDate.of(2025, 12, 5), LocalDate.of(2025, 12, 1)));
+    }
+
+    @Test
+    void businessDaysShouldMatchDayByDayCount() {
+        Random random = new Random(42);
+        LocalDate base = LocalDate.of(1960, 1, 1);
+
+        for (int i = 0; i < 10_000; i++) {
+            LocalDate startDate = base.plusDays(random.nextInt(60_000));
+            LocalDate endDate = startDate.plusDays(random.nextInt(2_000) - 5);
+
+            assertEquals(countByLoop(startDate, endDate), DateUtil.businessDaysBetween(startDate, endDate),
+                    startDate + " -> " + endDate);
+        }
+    }
+
+    // The original implementation, kept as a reference
+    static long countByLoop(LocalDate startDate, LocalDate endDate) {
+        long days = 0;
+        LocalDate current = startDate;
+
+        while (!current.isAfter(endDate)) {
+            DayOfWeek dow = current.getDayOfWeek();
+            if (dow != DayOfWeek.SATURDAY && dow != DayOfWeek.SUNDAY) {
+                days++;
+            }
+            current = current.plusDays(1);
+        }
+
+        return days;
+    }
+}
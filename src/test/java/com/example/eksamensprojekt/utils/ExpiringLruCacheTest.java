@@ -0,0 +1,67 @@
+package com.example.eksamensprojekt.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringLruCacheTest {
+
+    @Test
+    void shouldCountHitsAndMisses() {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(10, Duration.ofMinutes(1));
+
+        assertNull(cache.get("a"));
+        cache.put("a", 1);
+        assertEquals(1, cache.get("a"));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntry() {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(2, Duration.ofMinutes(1));
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a"); // b is now the least recently used
+        cache.put("c", 3);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a"));
+        assertEquals(3, cache.get("c"));
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTimeToLive() {
+        AtomicLong now = new AtomicLong();
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(10, Duration.ofSeconds(30), now::get);
+
+        cache.put("a", 1);
+        now.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertEquals(1, cache.get("a"));
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldInvalidateMatchingEntries() {
+        ExpiringLruCache<String, Integer> cache = new ExpiringLruCache<>(10, Duration.ofMinutes(1));
+
+        cache.put("a1", 1);
+        cache.put("a2", 2);
+        cache.put("b1", 3);
+        cache.invalidateIf(key -> key.startsWith("a"));
+
+        assertNull(cache.get("a1"));
+        assertNull(cache.get("a2"));
+        assertEquals(3, cache.get("b1"));
+    }
+}
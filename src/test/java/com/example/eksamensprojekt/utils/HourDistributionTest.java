@@ -0,0 +1,87 @@
+package com.example.eksamensprojekt.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HourDistributionTest {
+
+    // Reset the shared calendar, which a Spring test may have filled with holidays
+    @BeforeEach
+    void useWeekendsOnly() {
+        DateUtil.setCalendar(WorkingDayCalendar.WEEKENDS_ONLY);
+    }
+
+    @Test
+    void shouldSumOverlappingRangesOnBusinessDays() {
+        HourDistribution distribution = new HourDistribution();
+        distribution.addDailyRate(LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 7), 2.0); // Monday -> Sunday
+        distribution.addDailyRate(LocalDate.of(2025, 12, 4), LocalDate.of(2025, 12, 9), 1.5); // Thursday -> Tuesday
+
+        Map<LocalDate, Double> map = distribution.toMap();
+
+        assertEquals(7, map.size());
+        assertEquals(2.0, map.get(LocalDate.of(2025, 12, 3)));
+        assertEquals(3.5, map.get(LocalDate.of(2025, 12, 4)));
+        assertEquals(3.5, map.get(LocalDate.of(2025, 12, 5)));
+        assertNull(map.get(LocalDate.of(2025, 12, 6))); // Saturday
+        assertEquals(1.5, map.get(LocalDate.of(2025, 12, 9)));
+    }
+
+    @Test
+    void windowShouldIncludeEveryDayAndKeepDateOrder() {
+        HourDistribution distribution = new HourDistribution();
+        distribution.addDailyRate(LocalDate.of(2025, 11, 28), LocalDate.of(2025, 12, 1), 4.0); // Friday -> Monday
+
+        Map<LocalDate, Double> map = distribution.toMap(LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 3));
+
+        // the Friday before the window is kept, the weekend in between is not
+        assertEquals(List.of(LocalDate.of(2025, 11, 28), LocalDate.of(2025, 12, 1),
+                LocalDate.of(2025, 12, 2), LocalDate.of(2025, 12, 3)), List.copyOf(map.keySet()));
+        assertEquals(List.of(4.0, 4.0, 0.0, 0.0), List.copyOf(map.values()));
+    }
+
+    @Test
+    void emptyDistributionShouldOnlyContainTheWindow() {
+        HourDistribution distribution = new HourDistribution();
+
+        assertTrue(distribution.toMap().isEmpty());
+        assertEquals(2, distribution.toMap(LocalDate.of(2025, 12, 6), LocalDate.of(2025, 12, 7)).size());
+    }
+
+    @Test
+    void shouldSumIntoWeeksInsideTheWindow() {
+        HourDistribution distribution = new HourDistribution();
+        distribution.addDailyRate(LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 31), 1.0);
+
+        // Wednesday 3/12 -> Tuesday 16/12: the first and last weeks are cut by the window
+        double[] logged = new double[14];
+        logged[0] = 2.0;  // Wednesday 3/12
+        logged[4] = 1.5;  // Sunday 7/12, logged hours are kept on weekends
+        logged[13] = 4.0; // Tuesday 16/12
+        HourSeries weeks = distribution.toSeries(TimeBucket.WEEK, LocalDate.of(2025, 12, 3), LocalDate.of(2025, 12, 16), logged);
+
+        assertEquals(List.of("2025-W49", "2025-W50", "2025-W51"), weeks.getLabels());
+        assertArrayEquals(new double[]{3.0, 5.0, 2.0}, weeks.getEstimatedHours());
+        assertArrayEquals(new double[]{3.5, 0.0, 4.0}, weeks.getActualHours());
+    }
+
+    @Test
+    void shouldLabelMonthsAndQuarters() {
+        HourDistribution distribution = new HourDistribution();
+        distribution.addDailyRate(LocalDate.of(2025, 9, 29), LocalDate.of(2025, 10, 3), 2.0); // Monday -> Friday
+
+        HourSeries months = distribution.toSeries(TimeBucket.MONTH, LocalDate.of(2025, 9, 1), LocalDate.of(2025, 10, 31), null);
+        HourSeries quarters = distribution.toSeries(TimeBucket.QUARTER, LocalDate.of(2025, 9, 1), LocalDate.of(2025, 10, 31), null);
+
+        assertEquals(List.of("2025-09", "2025-10"), months.getLabels());
+        assertArrayEquals(new double[]{4.0, 6.0}, months.getEstimatedHours());
+        assertEquals(List.of("2025-Q3", "2025-Q4"), quarters.getLabels());
+        assertArrayEquals(new double[]{0.0, 0.0}, quarters.getActualHours());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.eksamensprojekt.utils;
+
+import com.example.eksamensprojekt.model.UserSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDirectoryIndexTest {
+    private UserDirectoryIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserDirectoryIndex();
+        index.replaceAll(List.of(
+                new UserSummary(1, "anna@example.dk", "Anna Jensen", "Teamleder"),
+                new UserSummary(2, "bjorn@example.dk", "Bjørn Nielsen", "Udvikler"),
+                new UserSummary(3, "anders@example.dk", "Anders Jensen", "Designer")
+        ));
+    }
+
+    @Test
+    void shouldFindUsersByEmailPrefix() {
+        List<UserSummary> result = index.search("an", 10);
+
+        assertEquals(List.of(3, 1), result.stream().map(UserSummary::getUserId).toList());
+    }
+
+    @Test
+    void shouldFindUsersByAnyWordOfNameIgnoringCase() {
+        List<UserSummary> result = index.search("JENS", 10);
+
+        assertEquals(2, result.size());
+        assertEquals(1, index.search("anna jen", 10).size());
+    }
+
+    @Test
+    void shouldLimitResults() {
+        assertEquals(1, index.search("a", 1).size());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    void shouldReplaceTermsWhenUserIsUpdated() {
+        index.put(new UserSummary(2, "bjorn@example.dk", "Bjørn Andersen", "Udvikler"));
+
+        assertTrue(index.search("nielsen", 10).isEmpty());
+        assertEquals(1, index.search("andersen", 10).size());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void shouldRemoveUser() {
+        index.remove(1);
+
+        assertEquals(List.of(3), index.search("an", 10).stream().map(UserSummary::getUserId).toList());
+        assertEquals(2, index.size());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.eksamensprojekt.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkingDayCalendarTest {
+    private static final List<LocalDate> CHRISTMAS = List.of(
+            LocalDate.of(2025, 12, 24),  // Wednesday
+            LocalDate.of(2025, 12, 25),  // Thursday
+            LocalDate.of(2025, 12, 26),  // Friday
+            LocalDate.of(2026, 1, 1));   // Thursday
+
+    @Test
+    void shouldSkipWeekendsAndClosedDays() {
+        WorkingDayCalendar calendar = new WorkingDayCalendar(CHRISTMAS);
+
+        assertTrue(calendar.isWorkingDay(LocalDate.of(2025, 12, 23)));
+        assertFalse(calendar.isWorkingDay(LocalDate.of(2025, 12, 25)));
+        assertFalse(calendar.isWorkingDay(LocalDate.of(2025, 12, 27))); // Saturday
+        assertFalse(calendar.isWorkingDay(LocalDate.of(2026, 1, 1)));
+        assertTrue(calendar.isWorkingDay(LocalDate.of(2026, 1, 2)));
+        assertTrue(calendar.isWorkingDay(LocalDate.of(2027, 12, 24))); // outside the loaded years
+    }
+
+    @Test
+    void shouldCountWorkingDaysAcrossLoadedAndUnloadedYears() {
+        WorkingDayCalendar calendar = new WorkingDayCalendar(CHRISTMAS);
+
+        // Monday 22/12 -> Friday 2/1: 10 weekdays, 4 of them closed
+        assertEquals(6, calendar.workingDaysBetween(LocalDate.of(2025, 12, 22), LocalDate.of(2026, 1, 2)));
+        assertEquals(DateUtil.weekdaysBetween(LocalDate.of(2020, 1, 1), LocalDate.of(2030, 12, 31)) - 4,
+                calendar.workingDaysBetween(LocalDate.of(2020, 1, 1), LocalDate.of(2030, 12, 31)));
+    }
+
+    @Test
+    void shouldReadDatesFromFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("holidays.txt");
+        Files.writeString(file, "# Firmalukket\n2025-12-29 Mellem jul og nytår\n\n2025-12-30\n");
+
+        assertEquals(List.of(LocalDate.of(2025, 12, 29), LocalDate.of(2025, 12, 30)), WorkingDayCalendar.readDates(file));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.eksamensprojekt.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindBufferTest {
+
+    @Test
+    void shouldWriteQueuedItemsTogether() throws Exception {
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        try (WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test-writer", 100, 3,
+                Duration.ofMillis(200), Duration.ofSeconds(1), batches::add)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                futures.add(buffer.submit(i));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        }
+
+        // The first three fill a batch, the fourth is written when the flush interval has passed
+        assertEquals(List.of(List.of(1, 2, 3), List.of(4)), batches);
+    }
+
+    @Test
+    void shouldOnlyFailTheBadItemOfABatch() throws Exception {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        try (WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test-writer", 100, 10,
+                Duration.ofMillis(100), Duration.ofSeconds(1), batch -> {
+                    if (batch.contains(2)) {
+                        throw new IllegalStateException("bad item");
+                    }
+                    written.addAll(batch);
+                })) {
+            CompletableFuture<Void> good = buffer.submit(1);
+            CompletableFuture<Void> bad = buffer.submit(2);
+            CompletableFuture<Void> alsoGood = buffer.submit(3);
+
+            good.get(5, TimeUnit.SECONDS);
+            alsoGood.get(5, TimeUnit.SECONDS);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+
+        assertEquals(List.of(1, 3), written);
+    }
+
+    @Test
+    void shouldRejectWhenFullAndDrainOnClose() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test-writer", 2, 1,
+                Duration.ZERO, Duration.ofMillis(50), batch -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    written.addAll(batch);
+                });
+
+        buffer.submit(1);
+        // Wait for the writer to take the first item, so it is blocked with an empty queue
+        while (buffer.getQueuedCount() > 0) {
+            Thread.sleep(5);
+        }
+        buffer.submit(2);
+        buffer.submit(3);
+        assertThrows(RejectedExecutionException.class, () -> buffer.submit(4));
+
+        release.countDown();
+        buffer.close(Duration.ofSeconds(5));
+
+        assertEquals(List.of(1, 2, 3), written);
+        assertThrows(RejectedExecutionException.class, () -> buffer.submit(5));
+    }
+
+    @Test
+    void shouldCompleteEverySubmittedItemWhenSubmitRacesClose() throws Exception {
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test-writer", 1000, 10,
+                        Duration.ZERO, Duration.ofSeconds(1), batch -> { });
+                List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    tasks.add(submitters.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < 200; i++) {
+                            try {
+                                futures.add(buffer.submit(i));
+                            } catch (RejectedExecutionException e) {
+                                break;
+                            }
+                        }
+                        return null;
+                    }));
+                }
+
+                start.countDown();
+                buffer.close(Duration.ofSeconds(5));
+                for (Future<?> task : tasks) {
+                    task.get(5, TimeUnit.SECONDS);
+                }
+
+                // Written or failed, but never left waiting
+                for (CompletableFuture<Void> future : futures) {
+                    try {
+                        future.get(5, TimeUnit.SECONDS);
+                    } catch (ExecutionException e) {
+                        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+                    }
+                }
+            }
+        } finally {
+            submitters.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldFailQueuedItemsAndCloseWhenTheWriterDies() throws Exception {
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test-writer", 100, 10,
+                Duration.ZERO, Duration.ofSeconds(1), batch -> {
+                    throw new Error("writer died");
+                });
+
+        CompletableFuture<Void> future = buffer.submit(1);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertThrows(RejectedExecutionException.class, () -> buffer.submit(2));
+    }
+}
@@ -2,9 +2,15 @@ SET FOREIGN_KEY_CHECKS = 0;
 DROP TABLE IF EXISTS task_users;
 DROP TABLE IF EXISTS project_users;
 DROP TABLE IF EXISTS project_role;
+DROP TABLE IF EXISTS holiday;
+DROP TABLE IF EXISTS project_rollup;
+DROP TABLE IF EXISTS task_rollup;
+DROP TABLE IF EXISTS task_hours_summary;
 DROP TABLE IF EXISTS time_entry;
+DROP TABLE IF EXISTS task_closure;
 DROP TABLE IF EXISTS task;
 DROP TABLE IF EXISTS task_status;
+DROP TABLE IF EXISTS project_closure;
 DROP TABLE IF EXISTS project;
 DROP TABLE IF EXISTS user_account;
 SET FOREIGN_KEY_CHECKS = 1;
@@ -30,6 +36,8 @@ CREATE TABLE project
     description       TEXT         NULL,
     start_date        DATE         NOT NULL,
     end_date          DATE         NOT NULL,
+    subtree_version   BIGINT       NOT NULL DEFAULT 0,
+    hours_version     BIGINT       NOT NULL DEFAULT 0,
     PRIMARY KEY (project_id),
     CONSTRAINT fk_project_parent_project_id FOREIGN KEY (parent_project_id)
         REFERENCES project (project_id)
@@ -41,6 +49,21 @@ CREATE TABLE project
         ON UPDATE CASCADE
 );
 
+CREATE TABLE project_closure
+(
+    ancestor_id   INT NOT NULL,
+    descendant_id INT NOT NULL,
+    depth         INT NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id),
+    INDEX idx_project_closure_descendant (descendant_id, depth),
+    CONSTRAINT fk_project_closure_ancestor_id FOREIGN KEY (ancestor_id)
+        REFERENCES project (project_id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_project_closure_descendant_id FOREIGN KEY (descendant_id)
+        REFERENCES project (project_id)
+        ON DELETE CASCADE
+);
+
 CREATE TABLE task_status
 (
     status_id   INT         NOT NULL,
@@ -75,6 +98,21 @@ CREATE TABLE task
 );
 
 
+CREATE TABLE task_closure
+(
+    ancestor_id   INT NOT NULL,
+    descendant_id INT NOT NULL,
+    depth         INT NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id),
+    INDEX idx_task_closure_descendant (descendant_id, depth),
+    CONSTRAINT fk_task_closure_ancestor_id FOREIGN KEY (ancestor_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_task_closure_descendant_id FOREIGN KEY (descendant_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE
+);
+
 CREATE TABLE time_entry
 (
     time_entry_id INT            NOT NULL AUTO_INCREMENT,
@@ -82,7 +120,10 @@ CREATE TABLE time_entry
     user_id       INT            NOT NULL,
     hours_worked  DECIMAL(10, 2) NOT NULL,
     description   VARCHAR(150)   NULL,
+    work_date     DATE           NOT NULL,
     PRIMARY KEY (time_entry_id),
+    INDEX idx_time_entry_task_date (task_id, work_date),
+    INDEX idx_time_entry_user_date (user_id, work_date),
     CONSTRAINT fk_time_entry_task_id FOREIGN KEY (task_id)
         REFERENCES task (task_id)
         ON DELETE CASCADE
@@ -93,6 +134,46 @@ CREATE TABLE time_entry
         ON UPDATE CASCADE
 );
 
+CREATE TABLE task_hours_summary
+(
+    task_id     INT            NOT NULL,
+    total_hours DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    entry_count INT            NOT NULL DEFAULT 0,
+    PRIMARY KEY (task_id),
+    CONSTRAINT fk_task_hours_summary_task_id FOREIGN KEY (task_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE
+);
+
+CREATE TABLE task_rollup
+(
+    task_id         INT            NOT NULL,
+    estimated_hours DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    actual_hours    DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (task_id),
+    CONSTRAINT fk_task_rollup_task_id FOREIGN KEY (task_id)
+        REFERENCES task (task_id)
+        ON DELETE CASCADE
+);
+
+CREATE TABLE project_rollup
+(
+    project_id      INT            NOT NULL,
+    estimated_hours DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    actual_hours    DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (project_id),
+    CONSTRAINT fk_project_rollup_project_id FOREIGN KEY (project_id)
+        REFERENCES project (project_id)
+        ON DELETE CASCADE
+);
+
+CREATE TABLE holiday
+(
+    holiday_date DATE         NOT NULL,
+    name         VARCHAR(100) NOT NULL,
+    PRIMARY KEY (holiday_date)
+);
+
 CREATE TABLE project_role
 (
     role      VARCHAR(20)  NOT NULL,
@@ -148,6 +229,14 @@ VALUES ('OWNER', 'Ejer'),
        ('EDIT', 'Rediger'),
        ('READ_ONLY', 'Se kun');
 
+-- ===============================
+-- Holidays
+-- ===============================
+INSERT INTO holiday (holiday_date, name)
+VALUES ('2025-12-24', 'Juleaftensdag'),
+       ('2025-12-25', '1. juledag'),
+       ('2025-12-26', '2. juledag');
+
 -- ===============================
 -- Users (password set to hash value of 'test123')
 -- ===============================
@@ -174,6 +263,19 @@ VALUES (1, NULL, 'Website Redesign', 'Komplet redesign af virksomhedens hjemmesi
        (2, 2, 'Login Modul', 'Implementering af sikker login-funktion', '2025-02-05', '2025-04-20'),
        (1, NULL, 'Firmajulefrokost', 'Planlægning af årets julefrokost', '2025-11-12', '2025-12-17');
 
+-- ===============================
+-- Project Closure (every ancestor/descendant pair, including each project with itself at depth 0)
+-- ===============================
+INSERT INTO project_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE paths (ancestor_id, descendant_id, depth) AS (
+    SELECT project_id, project_id, 0 FROM project
+    UNION ALL
+    SELECT paths.ancestor_id, child.project_id, paths.depth + 1
+    FROM paths
+    JOIN project child ON child.parent_project_id = paths.descendant_id
+)
+SELECT ancestor_id, descendant_id, depth FROM paths;
+
 -- ===============================
 -- Tasks
 -- ===============================
@@ -207,6 +309,19 @@ VALUES
 (NULL, 5, 'Menuplanlægning', '2025-11-21', '2025-12-01', 'Planlæg menu og drikkevarer', 15, 1),
 (NULL, 5, 'Invitationer', '2025-11-15', '2025-11-30', 'Send invitationer til medarbejdere', 5, 1);
 
+-- ===============================
+-- Task Closure (every ancestor/descendant pair, including each task with itself at depth 0)
+-- ===============================
+INSERT INTO task_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE paths (ancestor_id, descendant_id, depth) AS (
+    SELECT task_id, task_id, 0 FROM task
+    UNION ALL
+    SELECT paths.ancestor_id, child.task_id, paths.depth + 1
+    FROM paths
+    JOIN task child ON child.parent_task_id = paths.descendant_id
+)
+SELECT ancestor_id, descendant_id, depth FROM paths;
+
 -- ===============================
 -- Project Users
 -- ===============================
@@ -254,20 +369,52 @@ VALUES (1, 1),
 -- ===============================
 -- Time Entries
 -- ===============================
-INSERT INTO time_entry (task_id, user_id, hours_worked, description)
-VALUES (1, 1, 8.0, 'Første wireframes'),
-       (1, 1, 12.0, 'Endelige mockups'),
-       (2, 1, 5.0, 'Forside layout'),
-       (3, 1, 4.0, 'Kontaktside layout'),
-       (4, 2, 20.0, 'Opsætning af React projekt'),
-       (5, 2, 10.0, 'Header komponent basis'),
-       (6, 4, 15.0, 'Footer designjustering'),
-       (7, 2, 8.0, 'Dropdown menu implementering'),
-       (8, 1, 25.0, 'CMS opsætning'),
-       (9, 2, 12.0, 'Blog modul funktioner'),
-       (10, 4, 6.0, 'Kommentar funktion test'),
-       (12, 2, 30.0, 'API-kald integration'),
-       (12, 3, 20.0, 'Test af API-respons'),
-       (13, 4, 12.0, 'Login skærm layouts'),
-       (14, 2, 25.0, 'Backend login logik'),
-       (14, 3, 15.0, 'Test login backend');
+INSERT INTO time_entry (task_id, user_id, hours_worked, description, work_date)
+VALUES (1, 1, 8.0, 'Første wireframes', '2025-01-06'),
+       (1, 1, 12.0, 'Endelige mockups', '2025-02-10'),
+       (2, 1, 5.0, 'Forside layout', '2025-01-08'),
+       (3, 1, 4.0, 'Kontaktside layout', '2025-01-14'),
+       (4, 2, 20.0, 'Opsætning af React projekt', '2025-02-18'),
+       (5, 2, 10.0, 'Header komponent basis', '2025-02-20'),
+       (6, 4, 15.0, 'Footer designjustering', '2025-03-05'),
+       (7, 2, 8.0, 'Dropdown menu implementering', '2025-02-24'),
+       (8, 1, 25.0, 'CMS opsætning', '2025-03-03'),
+       (9, 2, 12.0, 'Blog modul funktioner', '2025-03-12'),
+       (10, 4, 6.0, 'Kommentar funktion test', '2025-03-18'),
+       (12, 2, 30.0, 'API-kald integration', '2025-03-24'),
+       (12, 3, 20.0, 'Test af API-respons', '2025-04-07'),
+       (13, 4, 12.0, 'Login skærm layouts', '2025-02-03'),
+       (14, 2, 25.0, 'Backend login logik', '2025-02-17'),
+       (14, 3, 15.0, 'Test login backend', '2025-02-26');
+
+-- ===============================
+-- Task Hours Summary (logged hours per task, kept up to date when time is logged)
+-- ===============================
+INSERT INTO task_hours_summary (task_id, total_hours, entry_count)
+SELECT task_id, SUM(hours_worked), COUNT(*)
+FROM time_entry
+GROUP BY task_id;
+
+-- ===============================
+-- Rollups (estimated and logged hours of each task and project including everything below it)
+-- Estimates are summed over leaf tasks only, since a parent task's estimate is the sum of its subtasks
+-- ===============================
+INSERT INTO task_rollup (task_id, estimated_hours, actual_hours)
+SELECT tc.ancestor_id,
+       SUM(CASE WHEN NOT EXISTS (SELECT 1 FROM task child WHERE child.parent_task_id = d.task_id)
+                THEN d.estimated_hours ELSE 0 END),
+       SUM(COALESCE(ths.total_hours, 0))
+FROM task_closure tc
+JOIN task d ON d.task_id = tc.descendant_id
+LEFT JOIN task_hours_summary ths ON ths.task_id = d.task_id
+GROUP BY tc.ancestor_id;
+
+INSERT INTO project_rollup (project_id, estimated_hours, actual_hours)
+SELECT pc.ancestor_id,
+       COALESCE(SUM(CASE WHEN NOT EXISTS (SELECT 1 FROM task child WHERE child.parent_task_id = t.task_id)
+                         THEN t.estimated_hours ELSE 0 END), 0),
+       COALESCE(SUM(ths.total_hours), 0)
+FROM project_closure pc
+LEFT JOIN task t ON t.project_id = pc.descendant_id
+LEFT JOIN task_hours_summary ths ON ths.task_id = t.task_id
+GROUP BY pc.ancestor_id;